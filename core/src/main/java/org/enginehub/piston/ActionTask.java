@@ -0,0 +1,151 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston;
+
+import org.enginehub.piston.exception.CommandException;
+import org.enginehub.piston.exception.CommandExecutionException;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the action of a parsed command, completing with its result.
+ * Cancelling it skips the action if it hasn't started, and can interrupt it if it has.
+ *
+ * <p>
+ * Only the task completes itself. Cancelling is the only control callers have,
+ * and the other ways of completing it throw {@link UnsupportedOperationException}.
+ * </p>
+ */
+final class ActionTask extends CompletableFuture<Integer> implements Runnable {
+
+    /**
+     * Run the action of a parsed command, wrapping exceptions from it in
+     * {@link CommandExecutionException}.
+     */
+    static int runAction(CommandParseResult parse) {
+        try {
+            return parse.getPrimaryCommand().getAction().run(parse.getParameters());
+        } catch (CommandException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CommandExecutionException(e, parse.getExecutionPath());
+        }
+    }
+
+    private final CommandParseResult parseResult;
+    @Nullable
+    private Thread runner;
+
+    ActionTask(CommandParseResult parseResult) {
+        this.parseResult = parseResult;
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (isDone()) {
+                // cancelled before it started
+                return;
+            }
+            runner = Thread.currentThread();
+        }
+        try {
+            super.complete(runAction(parseResult));
+        } catch (Throwable t) {
+            super.completeExceptionally(t);
+        } finally {
+            synchronized (this) {
+                runner = null;
+                if (isCancelled()) {
+                    // don't leak the interrupt from cancelling into the executor
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled && mayInterruptIfRunning) {
+            synchronized (this) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+        return cancelled;
+    }
+
+    private static UnsupportedOperationException notCompletable() {
+        return new UnsupportedOperationException("Only the command's action can complete this");
+    }
+
+    /**
+     * Fail the task without running it, such as when the executor rejects it.
+     */
+    void fail(Throwable failure) {
+        super.completeExceptionally(failure);
+    }
+
+    @Override
+    public boolean complete(Integer value) {
+        throw notCompletable();
+    }
+
+    @Override
+    public boolean completeExceptionally(Throwable ex) {
+        throw notCompletable();
+    }
+
+    @Override
+    public CompletableFuture<Integer> completeAsync(Supplier<? extends Integer> supplier, Executor executor) {
+        throw notCompletable();
+    }
+
+    @Override
+    public CompletableFuture<Integer> completeAsync(Supplier<? extends Integer> supplier) {
+        throw notCompletable();
+    }
+
+    @Override
+    public CompletableFuture<Integer> completeOnTimeout(Integer value, long timeout, TimeUnit unit) {
+        throw notCompletable();
+    }
+
+    @Override
+    public CompletableFuture<Integer> orTimeout(long timeout, TimeUnit unit) {
+        throw notCompletable();
+    }
+
+    @Override
+    public void obtrudeValue(Integer value) {
+        throw notCompletable();
+    }
+
+    @Override
+    public void obtrudeException(Throwable ex) {
+        throw notCompletable();
+    }
+}
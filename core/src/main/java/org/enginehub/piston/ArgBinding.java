@@ -45,4 +45,26 @@ public interface ArgBinding {
      */
     ImmutableSet<CommandPart> getParts();
 
+    /**
+     * Get the offset in the command line where the input starts, if the
+     * arguments were a {@link org.enginehub.piston.tokenizer.TokenizedLine}.
+     *
+     * @return the offset, or {@code -1} if it is not known
+     * @since 0.5.11
+     */
+    default int getStartOffset() {
+        return -1;
+    }
+
+    /**
+     * Get the offset in the command line just after the input ends, if the
+     * arguments were a {@link org.enginehub.piston.tokenizer.TokenizedLine}.
+     *
+     * @return the offset, or {@code -1} if it is not known
+     * @since 0.5.11
+     */
+    default int getEndOffset() {
+        return -1;
+    }
+
 }
@@ -19,15 +19,26 @@
 
 package org.enginehub.piston;
 
+import com.google.common.collect.Comparators;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import org.enginehub.piston.converter.ArgumentConverterStore;
 import org.enginehub.piston.exception.CommandException;
-import org.enginehub.piston.exception.CommandExecutionException;
+import org.enginehub.piston.exception.UsageException;
 import org.enginehub.piston.inject.InjectedValueAccess;
+import org.enginehub.piston.inject.MemoizingValueAccess;
 import org.enginehub.piston.suggestion.Suggestion;
+import org.enginehub.piston.suggestion.SuggestionSession;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -69,11 +80,68 @@ public interface CommandManager extends ArgumentConverterStore {
         register(builder.build());
     }
 
+    /**
+     * Register many commands at once.
+     *
+     * <p>
+     * The default implementation calls {@link #register(Command)} for each command.
+     * Implementations may validate all of the commands before registering any,
+     * and make them visible at the same time.
+     * </p>
+     *
+     * @param commands the commands to register
+     * @since 0.5.11
+     */
+    default void registerAll(Collection<Command> commands) {
+        commands.forEach(this::register);
+    }
+
+    /**
+     * Unregister a command, under its name and all of its aliases (optional operation).
+     *
+     * <p>
+     * Parses that have already started are not affected.
+     * The default implementation throws {@link UnsupportedOperationException}, as
+     * managers have no other way to remove commands. Managers that wrap another
+     * manager should forward this call to it.
+     * </p>
+     *
+     * @param command the command to unregister
+     * @return {@code true} if the command was registered
+     * @throws UnsupportedOperationException if this manager can't unregister commands
+     * @since 0.5.11
+     */
+    default boolean unregister(Command command) {
+        throw new UnsupportedOperationException("This manager cannot unregister commands");
+    }
+
+    /**
+     * Replace the commands registered under {@code namespace} with {@code commands},
+     * as one change (optional operation). Commands that were registered without a namespace, or under
+     * other namespaces, are kept.
+     *
+     * <p>
+     * This is intended for reloading a group of commands, such as those of a plugin.
+     * Replacing with no commands unregisters the namespace.
+     * Parses that have already started are not affected.
+     * The default implementation throws {@link UnsupportedOperationException}.
+     * Managers that wrap another manager should forward this call to it.
+     * </p>
+     *
+     * @param namespace the namespace to replace
+     * @param commands the new commands for the namespace
+     * @throws UnsupportedOperationException if this manager can't replace commands
+     * @since 0.5.11
+     */
+    default void replace(String namespace, Collection<Command> commands) {
+        throw new UnsupportedOperationException("This manager cannot replace commands");
+    }
+
     /**
      * Register an entire manager with this one, inheriting all of its commands.
      */
     default void registerManager(CommandManager manager) {
-        manager.getAllCommands().forEach(this::register);
+        registerAll(manager.getAllCommands().collect(ImmutableList.toImmutableList()));
         registerConverters(manager);
     }
 
@@ -115,6 +183,86 @@ public interface CommandManager extends ArgumentConverterStore {
      */
     ImmutableSet<Suggestion> getSuggestions(InjectedValueAccess context, List<String> args);
 
+    /**
+     * Suggest at most {@code limit} inputs, like {@link #getSuggestions(InjectedValueAccess, List)}.
+     *
+     * <p>
+     * The default implementation finds all suggestions, then keeps the first {@code limit}.
+     * </p>
+     *
+     * @param context the injected value context
+     * @param args the command line to suggest into
+     * @param limit the most suggestions to return
+     * @return the suggestions
+     * @since 0.5.11
+     */
+    default ImmutableSet<Suggestion> getSuggestions(InjectedValueAccess context, List<String> args, int limit) {
+        return ImmutableSet.copyOf(Iterables.limit(getSuggestions(context, args), limit));
+    }
+
+    /**
+     * Suggest the {@code limit} best inputs according to {@code ranking}, like
+     * {@link #getSuggestions(InjectedValueAccess, List)}. Every suggestion has to be
+     * found to rank them, but only the best are kept while doing so.
+     *
+     * @param context the injected value context
+     * @param args the command line to suggest into
+     * @param limit the most suggestions to return
+     * @param ranking orders suggestions from best to worst
+     * @return the suggestions, best first
+     * @since 0.5.11
+     */
+    default ImmutableSet<Suggestion> getSuggestions(InjectedValueAccess context, List<String> args, int limit,
+                                                    Comparator<? super Suggestion> ranking) {
+        return ImmutableSet.copyOf(getSuggestions(context, args).stream()
+            .collect(Comparators.least(limit, ranking)));
+    }
+
+    /**
+     * Suggest at most {@code limit} inputs, like {@link #getSuggestions(InjectedValueAccess, List, int)},
+     * without waiting more than {@code timeout} for slow suggestion sources.
+     *
+     * <p>
+     * Parsing happens on the calling thread. If it fails, the returned future is
+     * already completed with the exception. Conditions and converters may still be
+     * asked for suggestions on {@code executor}, so the injected values must be safe
+     * to use from it. The default implementation finds the suggestions on the calling
+     * thread.
+     * </p>
+     *
+     * @param context the injected value context
+     * @param args the command line to suggest into
+     * @param limit the most suggestions to return
+     * @param timeout how long to wait for slow suggestion sources
+     * @param executor the executor to collect the suggestions on
+     * @return a future for the suggestions
+     * @since 0.5.11
+     */
+    default CompletableFuture<ImmutableSet<Suggestion>> getSuggestionsAsync(InjectedValueAccess context,
+                                                                          List<String> args, int limit,
+                                                                          Duration timeout, Executor executor) {
+        try {
+            return CompletableFuture.completedFuture(getSuggestions(context, args, limit));
+        } catch (CommandException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Start a session for suggesting on a command line as it is typed.
+     *
+     * <p>
+     * The default implementation calls {@link #getSuggestions} each time.
+     * </p>
+     *
+     * @param context the injected value context, used for the whole session
+     * @return the new session
+     * @since 0.5.11
+     */
+    default SuggestionSession newSuggestionSession(InjectedValueAccess context) {
+        return args -> getSuggestions(context, args);
+    }
+
     /**
      * Parse a command, given a set of arguments and a context.
      *
@@ -138,6 +286,30 @@ public interface CommandManager extends ArgumentConverterStore {
      */
     CommandParseResult parse(InjectedValueAccess context, List<String> args);
 
+    /**
+     * Parse a command like {@link #parse(InjectedValueAccess, List)}, but report
+     * failures in the returned outcome instead of throwing them.
+     *
+     * <p>
+     * The default implementation catches exceptions from {@link #parse}, and
+     * so never reports {@link ParseOutcome.Status#INCOMPLETE}.
+     * </p>
+     *
+     * @param context the injected value context
+     * @param args the arguments to include
+     * @return the parsing outcome
+     * @since 0.5.11
+     */
+    default ParseOutcome tryParse(InjectedValueAccess context, List<String> args) {
+        try {
+            return ParseOutcome.complete(parse(context, args));
+        } catch (UsageException e) {
+            return ParseOutcome.failed(e.getCommandParseResult(), () -> e);
+        } catch (CommandException e) {
+            return ParseOutcome.failed(null, () -> e);
+        }
+    }
+
     /**
      * Execute a command, given a set of arguments and a context.
      *
@@ -151,15 +323,109 @@ public interface CommandManager extends ArgumentConverterStore {
      * @return the count from the executed command
      */
     default int execute(InjectedValueAccess context, List<String> args) {
-        CommandParseResult parse = parse(context, args);
+        return ActionTask.runAction(parse(context, args));
+    }
+
+    /**
+     * Parse many command lines with the same context, like {@link #tryParse}.
+     * A failure does not stop the rest of the batch, even if a converter throws
+     * something other than a {@link CommandException}. That exception is the
+     * cause of the line's failure.
+     *
+     * <p>
+     * Injected values are memoized for the whole batch. Implementations may
+     * also share other work between the commands, such as condition results.
+     * </p>
+     *
+     * @param context the injected value context
+     * @param lines the arguments of each command
+     * @return the outcome for each line, in the same order
+     * @since 0.5.11
+     */
+    default ImmutableList<ParseOutcome> parseBatch(InjectedValueAccess context,
+                                                   List<? extends List<String>> lines) {
+        InjectedValueAccess sharedContext = MemoizingValueAccess.wrap(context);
+        return lines.stream()
+            .map(line -> tryParseLine(sharedContext, line))
+            .collect(ImmutableList.toImmutableList());
+    }
 
+    private ParseOutcome tryParseLine(InjectedValueAccess context, List<String> line) {
         try {
-            return parse.getPrimaryCommand().getAction().run(parse.getParameters());
+            return tryParse(context, line);
         } catch (CommandException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new CommandExecutionException(e, parse.getExecutionPath());
+            return ParseOutcome.failed(null, () -> e);
+        } catch (RuntimeException e) {
+            return ParseOutcome.failed(null, () -> new CommandException(e, ImmutableList.of()));
+        }
+    }
+
+    /**
+     * Execute many command lines with the same context, such as those of a script.
+     * Each command is parsed and executed before the next is parsed, and a failure
+     * does not stop the rest of the batch, even if a converter or action throws
+     * something other than a {@link CommandException}. That exception is the
+     * cause of the line's failure.
+     *
+     * <p>
+     * Injected values are memoized for the whole batch. Implementations may
+     * also share other work between the commands, such as condition results.
+     * </p>
+     *
+     * @param context the injected value context
+     * @param lines the arguments of each command
+     * @return the result for each line, in the same order
+     * @since 0.5.11
+     */
+    default ImmutableList<ExecutionResult> executeBatch(InjectedValueAccess context,
+                                                        List<? extends List<String>> lines) {
+        InjectedValueAccess sharedContext = MemoizingValueAccess.wrap(context);
+        ImmutableList.Builder<ExecutionResult> results = ImmutableList.builderWithExpectedSize(lines.size());
+        for (List<String> line : lines) {
+            results.add(ExecutionResult.execute(tryParseLine(sharedContext, line)));
+        }
+        return results.build();
+    }
+
+    /**
+     * Execute a command like {@link #execute(InjectedValueAccess, List)}, but run
+     * its action on {@code executor}.
+     *
+     * <p>
+     * Parsing, including condition checks, happens on the calling thread. If it fails,
+     * the returned future is already completed with the exception. Otherwise the action
+     * is submitted to {@code executor}, and exceptions from it are wrapped as they would
+     * be by {@code execute}. The injected values must be safe to use from the executor.
+     * </p>
+     *
+     * <p>
+     * Cancelling the future skips the action if it hasn't started, and
+     * {@code cancel(true)} interrupts it if it has. Only the action completes
+     * the future otherwise, so methods such as {@code complete} and
+     * {@code obtrudeValue} throw {@link UnsupportedOperationException}. Use
+     * a dependent stage to add a timeout.
+     * </p>
+     *
+     * @param context the injected value context
+     * @param args the arguments to include
+     * @param executor the executor to run the action on
+     * @return a future for the count from the executed command
+     * @since 0.5.11
+     */
+    default CompletableFuture<Integer> executeAsync(InjectedValueAccess context, List<String> args,
+                                                    Executor executor) {
+        ActionTask task;
+        try {
+            task = new ActionTask(parse(context, args));
+        } catch (CommandException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.fail(e);
         }
+        return task;
     }
 
 }
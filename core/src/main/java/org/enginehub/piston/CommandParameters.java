@@ -28,6 +28,11 @@ import javax.annotation.Nullable;
 
 /**
  * Access to part values derived from user input.
+ *
+ * <p>
+ * Parts should be the same instances that the commands were built with.
+ * Implementations may look them up by identity.
+ * </p>
  */
 public interface CommandParameters extends InjectedValueAccess {
 
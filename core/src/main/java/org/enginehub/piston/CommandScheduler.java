@@ -0,0 +1,228 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston;
+
+import com.google.auto.value.AutoValue;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Queues the actions of parsed commands, and runs them a tick at a time, so a
+ * burst of commands is spread over several ticks of a host's main loop.
+ *
+ * <p>
+ * Commands may be submitted from any thread. {@link #runTick()} should be
+ * called from the thread that actions must run on.
+ * </p>
+ *
+ * @since 0.5.11
+ */
+public final class CommandScheduler {
+
+    /**
+     * A snapshot of the scheduler's metrics.
+     */
+    @AutoValue
+    public abstract static class Stats {
+
+        static Stats of(int queueDepth, long executed, long rejected, long totalWaitNanos, long maxWaitNanos) {
+            return new AutoValue_CommandScheduler_Stats(
+                queueDepth, executed, rejected, totalWaitNanos, maxWaitNanos
+            );
+        }
+
+        Stats() {
+        }
+
+        /**
+         * The number of commands waiting to run.
+         */
+        public abstract int getQueueDepth();
+
+        /**
+         * The number of commands that have been run.
+         */
+        public abstract long getExecutedCount();
+
+        /**
+         * The number of commands rejected because the queue was full.
+         */
+        public abstract long getRejectedCount();
+
+        /**
+         * The total time commands waited in the queue before running.
+         */
+        public abstract long getTotalWaitNanos();
+
+        /**
+         * The longest time a command waited in the queue before running.
+         */
+        public abstract long getMaxWaitNanos();
+
+        public final long getAverageWaitNanos() {
+            return getExecutedCount() == 0 ? 0 : getTotalWaitNanos() / getExecutedCount();
+        }
+    }
+
+    private static final class Entry {
+        final ActionTask task;
+        final int priority;
+        final long sequence;
+        final long enqueuedAt;
+
+        Entry(ActionTask task, int priority, long sequence, long enqueuedAt) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    // higher priorities first, then first-come first-served
+    private static final Comparator<Entry> ORDER = Comparator.<Entry>comparingInt(e -> -e.priority)
+        .thenComparingLong(e -> e.sequence);
+
+    private final int capacity;
+    private final long tickBudgetNanos;
+    private final LongSupplier nanoClock;
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(ORDER);
+    private long nextSequence;
+    private long executed;
+    private long rejected;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    /**
+     * Create a scheduler, timed with {@link System#nanoTime()}.
+     *
+     * @param capacity the most commands that can wait at once
+     * @param tickBudgetNanos how long each tick may run commands for
+     */
+    public CommandScheduler(int capacity, long tickBudgetNanos) {
+        this(capacity, tickBudgetNanos, System::nanoTime);
+    }
+
+    /**
+     * Create a scheduler.
+     *
+     * @param capacity the most commands that can wait at once
+     * @param tickBudgetNanos how long each tick may run commands for
+     * @param nanoClock the clock to time commands with
+     */
+    public CommandScheduler(int capacity, long tickBudgetNanos, LongSupplier nanoClock) {
+        checkArgument(capacity > 0, "Capacity must be positive");
+        checkArgument(tickBudgetNanos > 0, "Tick budget must be positive");
+        this.capacity = capacity;
+        this.tickBudgetNanos = tickBudgetNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Queue the action of a parsed command. Exceptions from it are wrapped
+     * as they would be by {@link CommandManager#execute}.
+     *
+     * <p>
+     * Cancelling the returned future removes the command from the queue.
+     * </p>
+     *
+     * @param parseResult the command to run
+     * @param priority the priority, commands with higher priorities run first
+     * @return a future for the count from the executed command
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public CompletableFuture<Integer> submit(CommandParseResult parseResult, int priority) {
+        ActionTask task = new ActionTask(parseResult);
+        synchronized (queue) {
+            if (queue.size() >= capacity) {
+                rejected++;
+                throw new RejectedExecutionException("Command queue is full (" + capacity + ")");
+            }
+            queue.add(new Entry(task, priority, nextSequence++, nanoClock.getAsLong()));
+        }
+        task.whenComplete((r, t) -> {
+            if (task.isCancelled()) {
+                synchronized (queue) {
+                    queue.removeIf(e -> e.task == task);
+                }
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Get how many more commands can be queued before they are rejected.
+     * Use this to apply backpressure.
+     */
+    public int remainingCapacity() {
+        synchronized (queue) {
+            return capacity - queue.size();
+        }
+    }
+
+    /**
+     * Run queued commands until the tick budget is used up. At least one
+     * command is run if any are queued, so the queue always makes progress.
+     *
+     * @return the number of commands that were run
+     */
+    public int runTick() {
+        long start = nanoClock.getAsLong();
+        int ran = 0;
+        while (true) {
+            Entry entry;
+            synchronized (queue) {
+                entry = queue.poll();
+            }
+            if (entry == null) {
+                break;
+            }
+            if (entry.task.isDone()) {
+                // cancelled while queued
+                continue;
+            }
+            long now = nanoClock.getAsLong();
+            long wait = now - entry.enqueuedAt;
+            synchronized (queue) {
+                executed++;
+                totalWaitNanos += wait;
+                maxWaitNanos = Math.max(maxWaitNanos, wait);
+            }
+            entry.task.run();
+            ran++;
+            if (nanoClock.getAsLong() - start >= tickBudgetNanos) {
+                break;
+            }
+        }
+        return ran;
+    }
+
+    public Stats getStats() {
+        synchronized (queue) {
+            return Stats.of(queue.size(), executed, rejected, totalWaitNanos, maxWaitNanos);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston;
+
+import com.google.common.base.Suppliers;
+import org.enginehub.piston.exception.CommandException;
+import org.enginehub.piston.exception.CommandExecutionException;
+
+import javax.annotation.Nullable;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * The result of executing one command of {@link CommandManager#executeBatch}.
+ *
+ * @since 0.5.11
+ */
+public final class ExecutionResult {
+
+    public static ExecutionResult success(int count) {
+        return new ExecutionResult(count, null);
+    }
+
+    /**
+     * Create a failed result.
+     *
+     * @param failure creates the exception describing the failure
+     */
+    public static ExecutionResult failure(Supplier<? extends CommandException> failure) {
+        return new ExecutionResult(0, checkNotNull(failure));
+    }
+
+    /**
+     * Run the action of a complete parse, like {@link CommandManager#execute}
+     * does. If parsing did not complete, this is a failure with the parse's
+     * exception instead. Exceptions that are not {@link CommandException}s
+     * are wrapped in a {@link CommandExecutionException}, so they only fail
+     * this result.
+     *
+     * @param outcome the parse to execute
+     * @return the result of the action
+     */
+    public static ExecutionResult execute(ParseOutcome outcome) {
+        if (!outcome.isComplete()) {
+            return failure(outcome::getFailure);
+        }
+        CommandParseResult result = outcome.getResultOrThrow();
+        try {
+            return success(ActionTask.runAction(result));
+        } catch (CommandException e) {
+            return failure(() -> e);
+        } catch (RuntimeException e) {
+            // the action's own exceptions are already wrapped, so this came from the parse result
+            return failure(() -> new CommandExecutionException(e, result.getExecutionPath()));
+        }
+    }
+
+    private final int count;
+    @Nullable
+    private final Supplier<CommandException> failure;
+
+    private ExecutionResult(int count, @Nullable Supplier<? extends CommandException> failure) {
+        this.count = count;
+        this.failure = failure == null ? null : Suppliers.memoize(failure::get);
+    }
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+
+    /**
+     * Get the count from the executed command.
+     *
+     * @throws IllegalStateException if the execution failed
+     */
+    public int getCount() {
+        checkState(failure == null, "Execution failed");
+        return count;
+    }
+
+    /**
+     * Get the exception describing the failure. It is created on the first call.
+     *
+     * @throws IllegalStateException if the execution succeeded
+     */
+    public CommandException getFailure() {
+        checkState(failure != null, "Execution succeeded");
+        return failure.get();
+    }
+
+    /**
+     * Get the count if the execution succeeded, otherwise throw {@link #getFailure()}.
+     */
+    public int getCountOrThrow() {
+        if (failure == null) {
+            return count;
+        }
+        throw failure.get();
+    }
+
+    @Override
+    public String toString() {
+        return failure == null
+            ? "ExecutionResult{count=" + count + "}"
+            : "ExecutionResult{failed}";
+    }
+
+}
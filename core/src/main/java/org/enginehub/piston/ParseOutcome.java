@@ -0,0 +1,140 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.enginehub.piston;
+
+import com.google.common.base.Suppliers;
+import org.enginehub.piston.exception.CommandException;
+
+import javax.annotation.Nullable;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * The outcome of {@link CommandManager#tryParse}.
+ *
+ * <p>
+ * Unlike {@link CommandManager#parse}, a failed parse does not throw. The
+ * exception describing the failure is only created if
+ * {@link #getFailure()} is called.
+ * </p>
+ *
+ * @since 0.5.11
+ */
+public final class ParseOutcome {
+
+    public enum Status {
+        /**
+         * The command was fully parsed and can be executed.
+         */
+        COMPLETE,
+        /**
+         * The input ended before the command was complete. A partial result is available.
+         */
+        INCOMPLETE,
+        /**
+         * The input could not be parsed.
+         */
+        FAILED,
+    }
+
+    public static ParseOutcome complete(CommandParseResult result) {
+        return new ParseOutcome(Status.COMPLETE, checkNotNull(result), null);
+    }
+
+    /**
+     * Create an incomplete outcome.
+     *
+     * @param partialResult the result so far
+     * @param failure creates the exception describing what is missing
+     */
+    public static ParseOutcome incomplete(CommandParseResult partialResult,
+                                          Supplier<? extends CommandException> failure) {
+        return new ParseOutcome(Status.INCOMPLETE, checkNotNull(partialResult), checkNotNull(failure));
+    }
+
+    /**
+     * Create a failed outcome.
+     *
+     * @param partialResult the result so far, if there is one
+     * @param failure creates the exception describing the failure
+     */
+    public static ParseOutcome failed(@Nullable CommandParseResult partialResult,
+                                      Supplier<? extends CommandException> failure) {
+        return new ParseOutcome(Status.FAILED, partialResult, checkNotNull(failure));
+    }
+
+    private final Status status;
+    @Nullable
+    private final CommandParseResult result;
+    @Nullable
+    private final Supplier<CommandException> failure;
+
+    private ParseOutcome(Status status, @Nullable CommandParseResult result,
+                         @Nullable Supplier<? extends CommandException> failure) {
+        this.status = status;
+        this.result = result;
+        this.failure = failure == null ? null : Suppliers.memoize(failure::get);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isComplete() {
+        return status == Status.COMPLETE;
+    }
+
+    /**
+     * Get the result. For outcomes that are not {@link Status#COMPLETE complete},
+     * this is the partial result, if the parser got far enough to have one.
+     */
+    public Optional<CommandParseResult> getResult() {
+        return Optional.ofNullable(result);
+    }
+
+    /**
+     * Get the exception describing why parsing did not complete. It is
+     * created on the first call.
+     *
+     * @throws IllegalStateException if the outcome is complete
+     */
+    public CommandException getFailure() {
+        checkState(failure != null, "Parsing completed successfully");
+        return failure.get();
+    }
+
+    /**
+     * Get the result if parsing completed, otherwise throw {@link #getFailure()}.
+     */
+    public CommandParseResult getResultOrThrow() {
+        if (status == Status.COMPLETE) {
+            return checkNotNull(result);
+        }
+        throw getFailure();
+    }
+
+    @Override
+    public String toString() {
+        return "ParseOutcome{status=" + status + ", result=" + result + "}";
+    }
+
+}
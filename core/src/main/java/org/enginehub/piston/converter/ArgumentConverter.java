@@ -49,4 +49,40 @@ public interface ArgumentConverter<T> extends Converter<T>, SuggestionProvider {
         return Collections.emptyList();
     }
 
+    /**
+     * Check if a conversion made by this converter while parsing may be reused
+     * when the value is retrieved later, instead of converting it again.
+     *
+     * <p>
+     * A reused conversion hands out the same objects every time the value is retrieved,
+     * so this is {@code false} by default. Return {@code true} only if the converted
+     * values are immutable, and the conversion is pure (see
+     * {@link Converter#convert(String, InjectedValueAccess)}), not depending on state
+     * that may change before the command runs. The built-in converters for strings,
+     * primitive wrappers and enums, and the map-based converters, return {@code true}.
+     * </p>
+     *
+     * @return {@code true} if conversions from parsing may be reused
+     * @since 0.5.11
+     */
+    default boolean canReuseConversions() {
+        return false;
+    }
+
+    /**
+     * Check if the suggestions made by this converter may be cached, for callers
+     * with the same context.
+     *
+     * <p>
+     * This is {@code true} by default. Return {@code false} if the suggestions are
+     * volatile, such as the names of online players.
+     * </p>
+     *
+     * @return {@code true} if suggestions may be cached
+     * @since 0.5.11
+     */
+    default boolean canCacheSuggestions() {
+        return true;
+    }
+
 }
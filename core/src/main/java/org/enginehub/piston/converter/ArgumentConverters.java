@@ -21,6 +21,7 @@ package org.enginehub.piston.converter;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Primitives;
 import com.google.common.reflect.TypeToken;
 import org.enginehub.piston.inject.InjectedValueAccess;
 import org.enginehub.piston.util.CaseHelper;
@@ -45,8 +46,9 @@ import static java.lang.invoke.MethodType.methodType;
  */
 public class ArgumentConverters {
 
-    private static final ArgumentConverter<String> STRING_ARGUMENT_CONVERTER =
-        SimpleArgumentConverter.from((s, c) -> SuccessfulConversion.fromSingle(s), "any text");
+    private static final ArgumentConverter<String> STRING_ARGUMENT_CONVERTER = reusingConversions(
+        SimpleArgumentConverter.from((s, c) -> SuccessfulConversion.fromSingle(s), "any text")
+    );
 
     public static ArgumentConverter<String> forString() {
         return STRING_ARGUMENT_CONVERTER;
@@ -213,9 +215,25 @@ public class ArgumentConverters {
             .map(Optional::get)
             .findAny()
             .orElseThrow(() -> new IllegalArgumentException("No built-in converters for " + type));
+        Class<?> rawType = type.wrap().getRawType();
+        if (Primitives.isWrapperType(rawType) || rawType.isEnum()) {
+            return reusingConversions(result);
+        }
         return result;
     }
 
+    /**
+     * Mark {@code converter} as making immutable values, so conversions from parsing can be reused.
+     */
+    private static <T> ArgumentConverter<T> reusingConversions(ArgumentConverter<T> converter) {
+        return new ForwardingArgumentConverter<T>(converter) {
+            @Override
+            public boolean canReuseConversions() {
+                return true;
+            }
+        };
+    }
+
     private ArgumentConverters() {
     }
 
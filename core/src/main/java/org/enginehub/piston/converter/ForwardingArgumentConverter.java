@@ -46,4 +46,9 @@ public class ForwardingArgumentConverter<T> implements ArgumentConverter<T> {
     public List<String> getSuggestions(String input, InjectedValueAccess context) {
         return delegate.getSuggestions(input, context);
     }
+
+    @Override
+    public boolean canReuseConversions() {
+        return delegate.canReuseConversions();
+    }
 }
@@ -28,7 +28,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import static org.enginehub.piston.converter.SuggestionHelper.limitByPrefix;
 import static org.enginehub.piston.util.ComponentHelper.joiningWithBar;
 
 /**
@@ -50,9 +49,11 @@ public final class MapArgumentConverter<T> implements ArgumentConverter<T> {
     }
 
     private final ImmutableMap<String, T> map;
+    private final PrefixIndex keys;
 
     private MapArgumentConverter(Map<String, T> map) {
         this.map = ImmutableMap.copyOf(map);
+        this.keys = PrefixIndex.of(this.map.keySet());
     }
 
     @Override
@@ -64,6 +65,18 @@ public final class MapArgumentConverter<T> implements ArgumentConverter<T> {
         return SuccessfulConversion.fromSingle(result);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The values come from the map, so every conversion hands out the same objects anyway.
+     * </p>
+     */
+    @Override
+    public boolean canReuseConversions() {
+        return true;
+    }
+
     @Override
     public Component describeAcceptableArguments() {
         return map.keySet().stream()
@@ -73,6 +86,11 @@ public final class MapArgumentConverter<T> implements ArgumentConverter<T> {
 
     @Override
     public List<String> getSuggestions(String input, InjectedValueAccess context) {
-        return limitByPrefix(map.keySet().stream(), input);
+        return keys.withPrefix(input);
+    }
+
+    @Override
+    public List<String> getSuggestions(String input, InjectedValueAccess context, int limit) {
+        return keys.withPrefix(input, limit);
     }
 }
@@ -28,6 +28,7 @@ import com.google.common.collect.SetMultimap;
 import net.kyori.text.Component;
 import org.enginehub.piston.config.ColorConfig;
 import org.enginehub.piston.inject.InjectedValueAccess;
+import org.enginehub.piston.util.FuzzyIndex;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
@@ -35,17 +36,19 @@ import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Multimaps.asMap;
-import static org.enginehub.piston.converter.SuggestionHelper.limitByPrefix;
 import static org.enginehub.piston.util.ComponentHelper.joiningWithBar;
+import static org.enginehub.piston.util.FuzzyIndex.typoDistance;
 
 public class MultiKeyConverter<E> implements ArgumentConverter<E> {
 
     public static <E> Builder<E> builder(SetMultimap<E, String> items) {
         return new AutoValue_MultiKeyConverter_Arguments.Builder<E>()
             .errorMessage(arg -> "Not a valid argument: " + arg)
+            .fuzzySuggestions(false)
             .items(items);
     }
 
@@ -85,6 +88,14 @@ public class MultiKeyConverter<E> implements ArgumentConverter<E> {
 
         Builder<E> errorMessage(UnaryOperator<String> handler);
 
+        /**
+         * Set whether to suggest keys close to the input, when none start with it.
+         * Off by default.
+         *
+         * @since 0.5.11
+         */
+        Builder<E> fuzzySuggestions(boolean fuzzySuggestions);
+
         MultiKeyConverter<E> build();
     }
 
@@ -103,6 +114,9 @@ public class MultiKeyConverter<E> implements ArgumentConverter<E> {
             @Override
             Builder<E> errorMessage(UnaryOperator<String> handler);
 
+            @Override
+            Builder<E> fuzzySuggestions(boolean fuzzySuggestions);
+
             Arguments<E> autoBuild();
 
             @Override
@@ -118,10 +132,14 @@ public class MultiKeyConverter<E> implements ArgumentConverter<E> {
 
         abstract UnaryOperator<String> errorMessage();
 
+        abstract boolean fuzzySuggestions();
+
     }
 
     private final Component choices;
-    private final ImmutableSet<String> primaryKeys;
+    private final PrefixIndex primaryKeys;
+    @Nullable
+    private final FuzzyIndex<String> fuzzyKeys;
     private final ImmutableMap<String, E> map;
     @Nullable
     private final E unknownValue;
@@ -130,14 +148,19 @@ public class MultiKeyConverter<E> implements ArgumentConverter<E> {
     private MultiKeyConverter(Arguments<E> arguments) {
         ImmutableSortedMap.Builder<String, E> map = ImmutableSortedMap.orderedBy(String.CASE_INSENSITIVE_ORDER);
         ImmutableSet.Builder<String> primaryKeysBuilder = ImmutableSet.builder();
+        FuzzyIndex.Builder<String> fuzzyKeys = FuzzyIndex.builder();
         asMap(arguments.items()).forEach((item, keys) -> {
             checkState(keys.size() > 0, "No lookup keys for value %s", item);
-            primaryKeysBuilder.add(keys.iterator().next());
+            String primaryKey = keys.iterator().next();
+            primaryKeysBuilder.add(primaryKey);
             for (String key : keys) {
                 map.put(key, item);
+                fuzzyKeys.put(key, primaryKey);
             }
         });
-        this.primaryKeys = primaryKeysBuilder.build();
+        this.fuzzyKeys = arguments.fuzzySuggestions() ? fuzzyKeys.build() : null;
+        ImmutableSet<String> primaryKeys = primaryKeysBuilder.build();
+        this.primaryKeys = PrefixIndex.of(primaryKeys);
         this.choices = primaryKeys.stream()
             .map(ColorConfig.mainText()::wrap)
             .collect(joiningWithBar());
@@ -146,6 +169,18 @@ public class MultiKeyConverter<E> implements ArgumentConverter<E> {
         this.errorMessage = arguments.errorMessage();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The values come from the map, so every conversion hands out the same objects anyway.
+     * </p>
+     */
+    @Override
+    public boolean canReuseConversions() {
+        return true;
+    }
+
     @Override
     public Component describeAcceptableArguments() {
         return choices;
@@ -153,7 +188,20 @@ public class MultiKeyConverter<E> implements ArgumentConverter<E> {
 
     @Override
     public List<String> getSuggestions(String input, InjectedValueAccess context) {
-        return limitByPrefix(primaryKeys.stream(), input);
+        return getSuggestions(input, context, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<String> getSuggestions(String input, InjectedValueAccess context, int limit) {
+        List<String> suggestions = primaryKeys.withPrefix(input, limit);
+        if (suggestions.isEmpty() && fuzzyKeys != null && !map.containsKey(input)) {
+            // nothing starts with the input, so offer what it may be a typo of
+            return fuzzyKeys.nearest(input, typoDistance(input), Integer.MAX_VALUE).stream()
+                .distinct()
+                .limit(limit)
+                .collect(Collectors.toList());
+        }
+        return suggestions;
     }
 
     @Override
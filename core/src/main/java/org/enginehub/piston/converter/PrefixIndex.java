@@ -0,0 +1,130 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.converter;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.enginehub.piston.util.CaseHelper.foldCase;
+
+/**
+ * A sorted, case-insensitive index of choices, for suggesting them by prefix.
+ *
+ * <p>
+ * Build it once, when the converter is created. Queries find the matching
+ * range with a binary search, and return a view of it without copying.
+ * </p>
+ *
+ * @since 0.5.11
+ */
+public final class PrefixIndex {
+
+    private static final PrefixIndex EMPTY = new PrefixIndex(ImmutableList.of(), new String[0]);
+
+    public static PrefixIndex of(Collection<String> choices) {
+        if (choices.isEmpty()) {
+            return EMPTY;
+        }
+        List<String[]> pairs = new ArrayList<>(choices.size());
+        for (String choice : choices) {
+            pairs.add(new String[] {foldCase(choice), choice});
+        }
+        pairs.sort(Comparator.comparing(pair -> pair[0]));
+        ImmutableList.Builder<String> sorted = ImmutableList.builderWithExpectedSize(pairs.size());
+        String[] folded = new String[pairs.size()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = pairs.get(i)[0];
+            sorted.add(pairs.get(i)[1]);
+        }
+        return new PrefixIndex(sorted.build(), folded);
+    }
+
+    /**
+     * The choices, sorted by their folded form.
+     */
+    private final ImmutableList<String> choices;
+    private final String[] folded;
+
+    private PrefixIndex(ImmutableList<String> choices, String[] folded) {
+        this.choices = choices;
+        this.folded = folded;
+    }
+
+    /**
+     * Get all choices, in case-insensitive order.
+     */
+    public ImmutableList<String> getChoices() {
+        return choices;
+    }
+
+    /**
+     * Get the choices that {@link SuggestionHelper#byPrefix(String)} accepts:
+     * those that start with {@code input} ignoring case, and are longer than it.
+     *
+     * @param input the user's current input
+     * @return the matching choices, in case-insensitive order
+     */
+    public ImmutableList<String> withPrefix(String input) {
+        return withPrefix(input, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get at most {@code limit} choices, like {@link #withPrefix(String)}.
+     *
+     * @param input the user's current input
+     * @param limit the most choices to return
+     * @return the first matching choices, in case-insensitive order
+     */
+    public ImmutableList<String> withPrefix(String input, int limit) {
+        String prefix = foldCase(input);
+        int start = lowerBound(prefix);
+        // a choice equal to the input sorts first, and isn't a suggestion
+        while (start < folded.length && folded[start].equals(prefix)) {
+            start++;
+        }
+        int end = start;
+        while (end < folded.length && end - start < limit && folded[end].startsWith(prefix)) {
+            end++;
+        }
+        return choices.subList(start, end);
+    }
+
+    /**
+     * Find the first index with a folded choice not less than {@code prefix}.
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = folded.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (folded[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+}
@@ -19,7 +19,11 @@
 
 package org.enginehub.piston.converter;
 
+import org.enginehub.piston.Command;
+import org.enginehub.piston.util.PrefixTrie;
+
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -37,6 +41,18 @@ public class SuggestionHelper {
         return s -> s.length() > input.length() && startsWithIgnoreCase(s, input);
     }
 
+    /**
+     * Get the commands in {@code index} with a primary name that {@link #byPrefix(String)}
+     * accepts, in name order. Only the matching part of the index is visited.
+     *
+     * @since 0.5.11
+     */
+    public static Stream<Command> commandsByPrefix(PrefixTrie<Command> index, String input) {
+        return index.entriesWithPrefix(input)
+            .filter(e -> e.getKey().length() > input.length() && e.getKey().equals(e.getValue().getName()))
+            .map(Map.Entry::getValue);
+    }
+
     private static boolean startsWithIgnoreCase(String whole, String prefix) {
         return whole.regionMatches(true, 0, prefix, 0, prefix.length());
     }
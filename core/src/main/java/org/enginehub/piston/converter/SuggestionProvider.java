@@ -22,6 +22,7 @@ package org.enginehub.piston.converter;
 import org.enginehub.piston.inject.InjectedValueAccess;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents an object than can provide suggestions, given an input and context.
@@ -38,4 +39,43 @@ public interface SuggestionProvider {
      */
     List<String> getSuggestions(String input, InjectedValueAccess context);
 
+    /**
+     * Provide at most {@code limit} suggestions, like {@link #getSuggestions(String, InjectedValueAccess)}.
+     * Override this if suggestions can be found without finding all of them first.
+     *
+     * @param input the user's current input
+     * @param context the context for the current command
+     * @param limit the most suggestions to provide
+     * @return suggestions for the user
+     * @since 0.5.11
+     */
+    default List<String> getSuggestions(String input, InjectedValueAccess context, int limit) {
+        List<String> suggestions = getSuggestions(input, context);
+        return suggestions.size() <= limit ? suggestions : suggestions.subList(0, limit);
+    }
+
+    /**
+     * Provide suggestions like {@link #getSuggestions(String, InjectedValueAccess, int)},
+     * without blocking the calling thread. Override this if suggestions come from
+     * a slow source, such as a database.
+     *
+     * <p>
+     * The default implementation finds the suggestions on the calling thread.
+     * </p>
+     *
+     * @param input the user's current input
+     * @param context the context for the current command
+     * @param limit the most suggestions to provide
+     * @return a future for the suggestions
+     * @since 0.5.11
+     */
+    default CompletableFuture<List<String>> getSuggestionsAsync(String input, InjectedValueAccess context,
+                                                                int limit) {
+        try {
+            return CompletableFuture.completedFuture(getSuggestions(input, context, limit));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
 }
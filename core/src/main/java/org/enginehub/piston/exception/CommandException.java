@@ -25,36 +25,83 @@ import net.kyori.text.TextComponent;
 import org.enginehub.piston.Command;
 import org.enginehub.piston.util.TextHelper;
 
+import javax.annotation.Nullable;
+
 /**
  * Parent class for all command-related exceptions.
+ *
+ * <p>
+ * The plain text {@linkplain #getMessage() message} is only rendered from the
+ * {@linkplain #getRichMessage() rich message} when it is first requested.
+ * </p>
  */
 public class CommandException extends RuntimeException {
     private final Component message;
+    private final boolean hasMessage;
+    @Nullable
+    private String plainMessage;
     protected final ImmutableList<Command> commands;
 
     public CommandException(ImmutableList<Command> commands) {
         this.message = TextComponent.empty();
+        this.hasMessage = false;
         this.commands = commands;
     }
 
     public CommandException(Component message, ImmutableList<Command> commands) {
-        super(TextHelper.reduceToText(message));
         this.message = message;
+        this.hasMessage = true;
         this.commands = commands;
     }
 
     public CommandException(Component message, Throwable cause, ImmutableList<Command> commands) {
-        super(TextHelper.reduceToText(message), cause);
+        super(null, cause);
         this.message = message;
+        this.hasMessage = true;
         this.commands = commands;
     }
 
     public CommandException(Throwable cause, ImmutableList<Command> commands) {
         super(cause);
         this.message = TextComponent.empty();
+        this.hasMessage = false;
+        this.commands = commands;
+    }
+
+    /**
+     * Constructor allowing the stack trace to be skipped, for exceptions
+     * that are part of normal control flow.
+     *
+     * <p>
+     * The cause can't be set later with {@link #initCause(Throwable)}, even if
+     * it is {@code null}. Use the other constructors if it may need to be.
+     * </p>
+     *
+     * @param cause the cause, if any
+     * @param writableStackTrace if the stack trace should be filled in
+     * @since 0.5.11
+     */
+    protected CommandException(Component message, @Nullable Throwable cause, ImmutableList<Command> commands,
+                               boolean writableStackTrace) {
+        super(null, cause, true, writableStackTrace);
+        this.message = message;
+        this.hasMessage = true;
         this.commands = commands;
     }
 
+    @Override
+    @Nullable
+    public String getMessage() {
+        if (!hasMessage) {
+            return super.getMessage();
+        }
+        String result = plainMessage;
+        if (result == null) {
+            plainMessage = result = TextHelper.reduceToText(message);
+        }
+        return result;
+    }
+
     /**
      * Get the rich message, with extra formatting.
      */
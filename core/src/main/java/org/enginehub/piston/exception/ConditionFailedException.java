@@ -31,6 +31,16 @@ public class ConditionFailedException extends CommandException {
             commands);
     }
 
+    /**
+     * Create the exception, optionally without a stack trace. Its cause can't be set later.
+     *
+     * @since 0.5.11
+     */
+    public ConditionFailedException(ImmutableList<Command> commands, boolean writableStackTrace) {
+        super(TextComponent.of("Condition failed: " + Iterables.getLast(commands).getCondition()),
+            null, commands, writableStackTrace);
+    }
+
     public Command.Condition getCondition() {
         return Iterables.getLast(commands).getCondition();
     }
@@ -61,6 +61,24 @@ public class ConversionFailedException extends UsageException {
         FailedConversionMapper.mapOnto(() -> this, conversion);
     }
 
+    /**
+     * Create the exception, optionally without a stack trace. The conversion error
+     * is the cause, rather than being set later.
+     *
+     * @since 0.5.11
+     */
+    public ConversionFailedException(CommandParseResult parseResult,
+                                     Component conversionTarget,
+                                     ArgumentConverter<?> converter,
+                                     FailedConversion<?> conversion,
+                                     boolean writableStackTrace) {
+        super(getMessage(conversionTarget, converter, conversion), conversion.getError(),
+            parseResult, writableStackTrace);
+        this.converter = converter;
+        this.conversion = conversion;
+        conversion.getOtherFailures().forEach(f -> addSuppressed(f.getError()));
+    }
+
     public FailedConversion<?> getConversion() {
         return conversion;
     }
@@ -63,6 +63,16 @@ public class NoSuchFlagException extends UsageException {
         this.requestedFlag = requestedFlag;
     }
 
+    /**
+     * Create the exception, optionally without a stack trace. Its cause can't be set later.
+     *
+     * @since 0.5.11
+     */
+    public NoSuchFlagException(CommandParseResult parseResult, char requestedFlag, boolean writableStackTrace) {
+        super(getMessage(parseResult, requestedFlag), parseResult, writableStackTrace);
+        this.requestedFlag = requestedFlag;
+    }
+
     public char getRequestedFlag() {
         return requestedFlag;
     }
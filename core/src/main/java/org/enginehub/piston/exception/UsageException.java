@@ -22,6 +22,8 @@ package org.enginehub.piston.exception;
 import net.kyori.text.Component;
 import org.enginehub.piston.CommandParseResult;
 
+import javax.annotation.Nullable;
+
 /**
  * Parent class for all usage-related exceptions.
  *
@@ -45,6 +47,28 @@ public class UsageException extends CommandException {
         this.commandParseResult = commandParseResult;
     }
 
+    /**
+     * Create a usage exception, optionally without a stack trace. Its cause can't be set later.
+     *
+     * @since 0.5.11
+     */
+    public UsageException(Component message, CommandParseResult commandParseResult,
+                          boolean writableStackTrace) {
+        this(message, null, commandParseResult, writableStackTrace);
+    }
+
+    /**
+     * Create a usage exception, optionally without a stack trace. Its cause can't be set later.
+     *
+     * @param cause the cause, if any
+     * @since 0.5.11
+     */
+    public UsageException(Component message, @Nullable Throwable cause, CommandParseResult commandParseResult,
+                          boolean writableStackTrace) {
+        super(message, cause, commandParseResult.getExecutionPath(), writableStackTrace);
+        this.commandParseResult = commandParseResult;
+    }
+
     public UsageException(Throwable cause, CommandParseResult commandParseResult) {
         super(cause, commandParseResult.getExecutionPath());
         this.commandParseResult = commandParseResult;
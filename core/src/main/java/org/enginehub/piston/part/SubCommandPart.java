@@ -20,12 +20,15 @@
 package org.enginehub.piston.part;
 
 import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
 import net.kyori.text.Component;
 import net.kyori.text.TextComponent;
 import net.kyori.text.TranslatableComponent;
 import org.enginehub.piston.Command;
 import org.enginehub.piston.config.ColorConfig;
+import org.enginehub.piston.util.FuzzyIndex;
+import org.enginehub.piston.util.PrefixTrie;
 
 import java.util.Collection;
 
@@ -37,7 +40,8 @@ public abstract class SubCommandPart implements ArgConsumingCommandPart {
     public static Builder builder(TranslatableComponent name, Component description) {
         return new AutoValue_SubCommandPart.Builder()
             .named(name)
-            .describedBy(description);
+            .describedBy(description)
+            .fuzzySuggestions(false);
     }
 
     @AutoValue.Builder
@@ -75,11 +79,64 @@ public abstract class SubCommandPart implements ArgConsumingCommandPart {
 
         abstract Builder required(boolean required);
 
+        /**
+         * Suggest sub-commands close to the input, when none start with it.
+         * Off by default.
+         *
+         * @since 0.5.11
+         */
+        public final Builder withFuzzySuggestions() {
+            return fuzzySuggestions(true);
+        }
+
+        abstract Builder fuzzySuggestions(boolean fuzzySuggestions);
+
         public abstract SubCommandPart build();
     }
 
     public abstract ImmutableList<Command> getCommands();
 
+    /**
+     * Check if sub-commands close to the input are suggested, when none start with it.
+     *
+     * @since 0.5.11
+     */
+    public abstract boolean isFuzzySuggestions();
+
+    /**
+     * Get the sub-commands, indexed by their names and aliases.
+     *
+     * @since 0.5.11
+     */
+    @Memoized
+    public PrefixTrie<Command> getCommandIndex() {
+        PrefixTrie.Builder<Command> index = PrefixTrie.builder();
+        for (Command command : getCommands()) {
+            index.put(command.getName(), command);
+            for (String alias : command.getAliases()) {
+                index.put(alias, command);
+            }
+        }
+        return index.build();
+    }
+
+    /**
+     * Get the sub-commands, indexed for finding names and aliases close to a typo.
+     *
+     * @since 0.5.11
+     */
+    @Memoized
+    public FuzzyIndex<Command> getFuzzyIndex() {
+        FuzzyIndex.Builder<Command> index = FuzzyIndex.builder();
+        for (Command command : getCommands()) {
+            index.put(command.getName(), command);
+            for (String alias : command.getAliases()) {
+                index.put(alias, command);
+            }
+        }
+        return index.build();
+    }
+
     @Override
     public Component getTextRepresentation() {
         ImmutableList.Builder<Component> builder = ImmutableList.builder();
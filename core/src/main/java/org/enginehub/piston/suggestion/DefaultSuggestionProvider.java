@@ -25,23 +25,30 @@ import com.google.common.collect.Iterables;
 import org.enginehub.piston.ArgBinding;
 import org.enginehub.piston.Command;
 import org.enginehub.piston.CommandParseResult;
+import org.enginehub.piston.converter.ArgumentConverter;
 import org.enginehub.piston.converter.ArgumentConverterAccess;
+import org.enginehub.piston.inject.InjectedValueAccess;
 import org.enginehub.piston.part.ArgAcceptingCommandFlag;
 import org.enginehub.piston.part.ArgAcceptingCommandPart;
 import org.enginehub.piston.part.CommandFlag;
 import org.enginehub.piston.part.CommandPart;
 import org.enginehub.piston.part.SubCommandPart;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static org.enginehub.piston.converter.SuggestionHelper.byPrefix;
+import static org.enginehub.piston.converter.SuggestionHelper.commandsByPrefix;
+import static org.enginehub.piston.util.FuzzyIndex.typoDistance;
 import static org.enginehub.piston.util.StreamHelper.cast;
 
 /**
@@ -56,15 +63,83 @@ public class DefaultSuggestionProvider implements SuggestionProvider {
         return INSTANCE;
     }
 
+    /**
+     * Gets the suggestions of a converter for the input. It is called for every converter
+     * that may suggest as soon as the stream is set up, so it should return a lazy stream.
+     */
+    private interface ConverterSuggester {
+        Stream<String> suggest(ArgumentConverter<?> converter, String input, InjectedValueAccess context);
+    }
+
+    private static ConverterSuggester directly(int limit) {
+        return (converter, input, context) -> Stream.of(converter)
+            .flatMap(c -> c.getSuggestions(input, context, limit).stream());
+    }
+
     private DefaultSuggestionProvider() {
     }
 
     @Override
     public ImmutableSet<Suggestion> provideSuggestions(List<String> args, CommandParseResult parseResult) {
-        return ImmutableSet.copyOf(getSuggestionStream(args, parseResult).iterator());
+        return ImmutableSet.copyOf(
+            getSuggestionStream(args, parseResult, Integer.MAX_VALUE, directly(Integer.MAX_VALUE)).iterator()
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The limit is passed on to the argument converters.
+     * </p>
+     */
+    @Override
+    public Stream<Suggestion> streamSuggestions(List<String> args, CommandParseResult parseResult, int limit) {
+        return getSuggestionStream(args, parseResult, limit, directly(limit));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Every converter that may suggest is asked at once, using
+     * {@link ArgumentConverter#getSuggestionsAsync(String, InjectedValueAccess, int)}.
+     * Converters that fail, or are not done by the timeout, give no suggestions,
+     * and the futures of those not done are cancelled.
+     * </p>
+     */
+    @Override
+    public CompletableFuture<ImmutableSet<Suggestion>> provideSuggestionsAsync(List<String> args,
+                                                                             CommandParseResult parseResult,
+                                                                             int limit, Duration timeout,
+                                                                             Executor executor) {
+        // setting up the stream starts every converter, so that slow ones wait together
+        List<CompletableFuture<List<String>>> started = new ArrayList<>();
+        Stream<Suggestion> suggestions = getSuggestionStream(args, parseResult, limit,
+            (converter, input, context) -> {
+                CompletableFuture<List<String>> future = converter.getSuggestionsAsync(input, context, limit);
+                started.add(future);
+                return Stream.of(future).flatMap(DefaultSuggestionProvider::completedSuggestions);
+            });
+        return CompletableFuture.allOf(started.toArray(new CompletableFuture<?>[0]))
+            .completeOnTimeout(null, timeout.toNanos(), TimeUnit.NANOSECONDS)
+            // nothing waits for converters that missed the timeout, so stop them
+            .whenComplete((done, failure) -> started.forEach(future -> future.cancel(true)))
+            // conditions are checked while collecting, so keep that off the converters' threads
+            .handleAsync((done, failure) -> ImmutableSet.copyOf(
+                suggestions.distinct().limit(limit).iterator()
+            ), executor);
     }
 
-    private Stream<Suggestion> getSuggestionStream(List<String> args, CommandParseResult parseResult) {
+    private static Stream<String> completedSuggestions(CompletableFuture<List<String>> future) {
+        if (!future.isDone() || future.isCompletedExceptionally()) {
+            return Stream.of();
+        }
+        return future.join().stream();
+    }
+
+    private Stream<Suggestion> getSuggestionStream(List<String> args, CommandParseResult parseResult, int limit,
+                                                   ConverterSuggester suggester) {
         // validate that we only have one invalid argument
         if (args.size() - parseResult.getBoundArguments().size() > 1) {
             // too many -- return no suggestions, to hint that the user should back up
@@ -75,7 +150,7 @@ public class DefaultSuggestionProvider implements SuggestionProvider {
             // complete flags if we have any
 
             // check if the last flag in `last` is an arg-flag
-            Optional<Stream<String>> argSuggestions = maybeSuggestArgFlag(last, "", parseResult);
+            Optional<Stream<String>> argSuggestions = maybeSuggestArgFlag(last, "", parseResult, limit, suggester);
             if (argSuggestions.isPresent()) {
                 return argSuggestions.get()
                     .map(asSuggestion(args.size()));
@@ -89,7 +164,7 @@ public class DefaultSuggestionProvider implements SuggestionProvider {
         if (args.size() == parseResult.getBoundArguments().size() && isLastExactMatch(parseResult.getBoundArguments())) {
             // all provided arguments are valid exact matches
             // suggest on empty for next argument
-            return suggestUnmatchedArguments("", parseResult)
+            return suggestUnmatchedArguments("", parseResult, limit, suggester)
                 .map(asSuggestion(args.size()));
         }
         if (args.size() > 1) {
@@ -97,14 +172,14 @@ public class DefaultSuggestionProvider implements SuggestionProvider {
             if (secondToLast.startsWith("-")) {
                 // this special case means we might be matching an arg-flag
                 Optional<Stream<String>> argSuggestions =
-                    maybeSuggestArgFlag(secondToLast, last, parseResult);
+                    maybeSuggestArgFlag(secondToLast, last, parseResult, limit, suggester);
                 if (argSuggestions.isPresent()) {
                     return argSuggestions.get()
                         .map(asSuggestion(args.size() - 1));
                 }
             }
         }
-        return suggestUnmatchedArguments(last, parseResult)
+        return suggestUnmatchedArguments(last, parseResult, limit, suggester)
             .map(asSuggestion(args.size() - 1));
     }
 
@@ -121,14 +196,15 @@ public class DefaultSuggestionProvider implements SuggestionProvider {
         return true;
     }
 
-    private Optional<Stream<String>> maybeSuggestArgFlag(String flags, String input, CommandParseResult parseResult) {
+    private Optional<Stream<String>> maybeSuggestArgFlag(String flags, String input, CommandParseResult parseResult,
+                                                         int limit, ConverterSuggester suggester) {
         if (flags.length() > 1) {
             char lastFlag = flags.charAt(flags.length() - 1);
             return cast(parseResult.getPrimaryCommand().getParts().stream(), ArgAcceptingCommandFlag.class)
                 .filter(f -> f.getName() == lastFlag)
                 .findAny()
                 .map(matchingArgLast ->
-                    suggestFromParts(input, ImmutableSet.of(matchingArgLast), parseResult)
+                    suggestFromParts(input, ImmutableSet.of(matchingArgLast), parseResult, limit, suggester)
                 );
         }
         return Optional.empty();
@@ -143,7 +219,8 @@ public class DefaultSuggestionProvider implements SuggestionProvider {
         return flags.stream().map(flag -> input + flag.getName());
     }
 
-    private Stream<String> suggestUnmatchedArguments(String input, CommandParseResult parseResult) {
+    private Stream<String> suggestUnmatchedArguments(String input, CommandParseResult parseResult, int limit,
+                                                     ConverterSuggester suggester) {
         ImmutableList.Builder<CommandPart> parts = ImmutableList.builder();
         ImmutableSet<CommandPart> usedExactParts = ImmutableSet.copyOf(
             parseResult.getBoundArguments().stream()
@@ -163,7 +240,7 @@ public class DefaultSuggestionProvider implements SuggestionProvider {
                 break;
             }
         }
-        return suggestFromParts(input, parts.build(), parseResult);
+        return suggestFromParts(input, parts.build(), parseResult, limit, suggester);
     }
 
     private Set<CommandFlag> unmatchedFlags(CommandParseResult result) {
@@ -175,21 +252,34 @@ public class DefaultSuggestionProvider implements SuggestionProvider {
             .collect(Collectors.toSet());
     }
 
+    private static Stream<Command> suggestSubCommands(SubCommandPart part, String input, int limit) {
+        if (!part.isFuzzySuggestions() || input.isEmpty()
+            || part.getCommandIndex().entriesWithPrefix(input).findAny().isPresent()) {
+            return commandsByPrefix(part.getCommandIndex(), input);
+        }
+        // no name starts with the input, so it is likely a typo
+        return part.getFuzzyIndex().nearest(input, typoDistance(input), limit).stream()
+            .distinct();
+    }
+
     private Stream<String> suggestFromParts(String input,
                                             Collection<CommandPart> parts,
-                                            CommandParseResult parseResult) {
+                                            CommandParseResult parseResult,
+                                            int limit,
+                                            ConverterSuggester suggester) {
         ArgumentConverterAccess converters = parseResult.getParameters().getConverters();
-        Predicate<String> nameFilter = byPrefix(input);
+        List<Stream<String>> converterSuggestions = cast(parts.stream(), ArgAcceptingCommandPart.class)
+            .filter(part -> part.getTypes().size() > 0)
+            .flatMap(part -> part.getTypes().stream())
+            .map(key -> converters.getConverter(key)
+                .orElseThrow(() -> new IllegalStateException("No converter for type " + key)))
+            .map(converter -> suggester.suggest(converter, input, parseResult.getParameters()))
+            .collect(Collectors.toList());
         return Stream.concat(
-            cast(parts.stream(), ArgAcceptingCommandPart.class)
-                .filter(part -> part.getTypes().size() > 0)
-                .flatMap(part -> part.getTypes().stream())
-                .map(key -> converters.getConverter(key)
-                    .orElseThrow(() -> new IllegalStateException("No converter for type " + key)))
-                .flatMap(converter -> converter.getSuggestions(input, parseResult.getParameters()).stream()),
+            converterSuggestions.stream().flatMap(Function.identity()),
             cast(parts.stream(), SubCommandPart.class)
-                .flatMap(part -> part.getCommands().stream())
-                .filter(c -> nameFilter.test(c.getName()) && c.getCondition().satisfied(parseResult.getParameters()))
+                .flatMap(part -> suggestSubCommands(part, input, limit))
+                .filter(c -> c.getCondition().satisfied(parseResult.getParameters()))
                 .map(Command::getName)
         );
     }
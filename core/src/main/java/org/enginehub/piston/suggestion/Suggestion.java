@@ -28,7 +28,9 @@ import com.google.auto.value.AutoValue;
 public abstract class Suggestion {
 
     public static Builder builder() {
-        return new AutoValue_Suggestion.Builder();
+        return new AutoValue_Suggestion.Builder()
+            .startOffset(-1)
+            .endOffset(-1);
     }
 
     @AutoValue.Builder
@@ -38,6 +40,16 @@ public abstract class Suggestion {
 
         Builder replacedArgument(int replaced);
 
+        /**
+         * @since 0.5.11
+         */
+        Builder startOffset(int startOffset);
+
+        /**
+         * @since 0.5.11
+         */
+        Builder endOffset(int endOffset);
+
         Suggestion build();
 
     }
@@ -58,6 +70,24 @@ public abstract class Suggestion {
      */
     public abstract int getReplacedArgument();
 
+    /**
+     * The offset in the command line where the replaced argument starts,
+     * if the arguments were a {@link org.enginehub.piston.tokenizer.TokenizedLine}.
+     *
+     * @return the offset, or {@code -1} if it is not known
+     * @since 0.5.11
+     */
+    public abstract int getStartOffset();
+
+    /**
+     * The offset in the command line just after the replaced argument ends,
+     * if the arguments were a {@link org.enginehub.piston.tokenizer.TokenizedLine}.
+     *
+     * @return the offset, or {@code -1} if it is not known
+     * @since 0.5.11
+     */
+    public abstract int getEndOffset();
+
     /**
      * Convert this suggestion back to a builder.
      */
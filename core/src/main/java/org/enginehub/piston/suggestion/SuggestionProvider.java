@@ -22,7 +22,11 @@ package org.enginehub.piston.suggestion;
 import com.google.common.collect.ImmutableSet;
 import org.enginehub.piston.CommandParseResult;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
  * General suggestion provider.
@@ -46,4 +50,46 @@ public interface SuggestionProvider {
      */
     ImmutableSet<Suggestion> provideSuggestions(List<String> args, CommandParseResult parseResult);
 
+    /**
+     * Provide suggestions like {@link #provideSuggestions(List, CommandParseResult)},
+     * as a stream that is only computed as far as it is used.
+     *
+     * @param args the original arguments passed
+     * @param parseResult the result of parsing the arguments
+     * @param limit how many distinct suggestions will be used. The stream may
+     *     contain more, and duplicates
+     * @return the suggestions
+     * @since 0.5.11
+     */
+    default Stream<Suggestion> streamSuggestions(List<String> args, CommandParseResult parseResult, int limit) {
+        return provideSuggestions(args, parseResult).stream();
+    }
+
+    /**
+     * Provide at most {@code limit} suggestions like
+     * {@link #provideSuggestions(List, CommandParseResult)}, without waiting more
+     * than {@code timeout} for slow sources. Whatever is found by then is used.
+     *
+     * <p>
+     * The default implementation finds the suggestions on the calling thread.
+     * </p>
+     *
+     * @param args the original arguments passed
+     * @param parseResult the result of parsing the arguments
+     * @param limit the most suggestions to provide
+     * @param timeout how long to wait for slow sources
+     * @param executor the executor to collect the suggestions on, once the sources
+     *     are done or the timeout passes
+     * @return a future for the suggestions
+     * @since 0.5.11
+     */
+    default CompletableFuture<ImmutableSet<Suggestion>> provideSuggestionsAsync(List<String> args,
+                                                                              CommandParseResult parseResult,
+                                                                              int limit, Duration timeout,
+                                                                              Executor executor) {
+        return CompletableFuture.completedFuture(ImmutableSet.copyOf(
+            streamSuggestions(args, parseResult, limit).distinct().limit(limit).iterator()
+        ));
+    }
+
 }
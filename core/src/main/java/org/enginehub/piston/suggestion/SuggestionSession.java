@@ -0,0 +1,48 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.enginehub.piston.suggestion;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.List;
+
+/**
+ * Provides suggestions for a command line that changes a little at a time,
+ * such as on every key press.
+ *
+ * <p>
+ * Implementations may keep state from earlier calls to avoid re-parsing
+ * arguments that did not change, so a session should only be used for one
+ * line of input, by one thread at a time.
+ * </p>
+ *
+ * @since 0.5.11
+ */
+public interface SuggestionSession {
+
+    /**
+     * Suggest inputs for the current command line.
+     *
+     * @param args the entire command line, including the command name
+     * @return the suggestions
+     * @see org.enginehub.piston.CommandManager#getSuggestions
+     */
+    ImmutableSet<Suggestion> getSuggestions(List<String> args);
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.enginehub.piston.tokenizer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Splits a command line into a {@link TokenizedLine}.
+ *
+ * <p>
+ * Tokens are separated by whitespace. A token starting with {@code "} or
+ * {@code '} is quoted, and runs until the matching unescaped quote, which
+ * may be followed directly by the next token. An unterminated quote runs to
+ * the end of the line. A backslash escapes the character after it, both
+ * inside and outside quotes.
+ * </p>
+ *
+ * @since 0.5.11
+ */
+public final class CommandLineTokenizer {
+
+    /**
+     * Tokenize a line for parsing.
+     *
+     * @param line the line, which must not be changed while the result is in use
+     * @return the tokens
+     */
+    public static TokenizedLine tokenize(CharSequence line) {
+        return tokenize(line, false);
+    }
+
+    /**
+     * Tokenize a line for suggestions. If the line ends in whitespace,
+     * an empty token is added at the end, so the next argument can be suggested.
+     *
+     * @param line the line, which must not be changed while the result is in use
+     * @return the tokens
+     */
+    public static TokenizedLine tokenizeForSuggestions(CharSequence line) {
+        return tokenize(line, true);
+    }
+
+    private static TokenizedLine tokenize(CharSequence line, boolean trailingToken) {
+        int[] spans = new int[8 * TokenizedLine.SPAN_SIZE];
+        BitSet escaped = new BitSet();
+        int count = 0;
+        int length = line.length();
+        int i = 0;
+        boolean endsInWhitespace = false;
+        while (true) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+                endsInWhitespace = true;
+            }
+            if (i >= length) {
+                break;
+            }
+            endsInWhitespace = false;
+            int start = i;
+            int contentStart;
+            int contentEnd;
+            char quote = line.charAt(i);
+            if (quote == '"' || quote == '\'') {
+                contentStart = ++i;
+                while (i < length && line.charAt(i) != quote) {
+                    if (line.charAt(i) == '\\' && i + 1 < length) {
+                        escaped.set(count);
+                        i++;
+                    }
+                    i++;
+                }
+                contentEnd = i;
+                if (i < length) {
+                    // skip the closing quote
+                    i++;
+                }
+            } else {
+                contentStart = i;
+                while (i < length && !Character.isWhitespace(line.charAt(i))) {
+                    if (line.charAt(i) == '\\' && i + 1 < length) {
+                        escaped.set(count);
+                        i++;
+                    }
+                    i++;
+                }
+                contentEnd = i;
+            }
+            spans = add(spans, count++, start, i, contentStart, contentEnd);
+        }
+        if (trailingToken && (endsInWhitespace || count == 0)) {
+            spans = add(spans, count++, length, length, length, length);
+        }
+        return new TokenizedLine(line, Arrays.copyOf(spans, count * TokenizedLine.SPAN_SIZE), escaped);
+    }
+
+    private static int[] add(int[] spans, int index, int start, int end, int contentStart, int contentEnd) {
+        int offset = index * TokenizedLine.SPAN_SIZE;
+        if (offset == spans.length) {
+            spans = Arrays.copyOf(spans, spans.length * 2);
+        }
+        spans[offset] = start;
+        spans[offset + 1] = end;
+        spans[offset + 2] = contentStart;
+        spans[offset + 3] = contentEnd;
+        return spans;
+    }
+
+    private CommandLineTokenizer() {
+    }
+}
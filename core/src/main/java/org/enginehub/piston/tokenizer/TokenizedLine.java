@@ -0,0 +1,116 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.enginehub.piston.tokenizer;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * The tokens of a command line, as produced by {@link CommandLineTokenizer}.
+ *
+ * <p>
+ * Only the offsets of each token are stored. The text of a token is
+ * created when it is first retrieved, and then reused. This list is
+ * immutable, so it can be passed straight to the command manager without
+ * being copied.
+ * </p>
+ *
+ * @since 0.5.11
+ */
+public final class TokenizedLine extends AbstractList<String> implements RandomAccess {
+
+    /**
+     * Each span is the start and end of the token in the line, and the start
+     * and end of its content, which excludes any quotes.
+     */
+    static final int SPAN_SIZE = 4;
+
+    private final CharSequence line;
+    private final int[] spans;
+    private final BitSet escaped;
+    private final String[] tokens;
+
+    TokenizedLine(CharSequence line, int[] spans, BitSet escaped) {
+        this.line = line;
+        this.spans = spans;
+        this.escaped = escaped;
+        this.tokens = new String[spans.length / SPAN_SIZE];
+    }
+
+    /**
+     * Get the line the tokens were taken from.
+     */
+    public CharSequence getLine() {
+        return line;
+    }
+
+    @Override
+    public int size() {
+        return tokens.length;
+    }
+
+    @Override
+    public String get(int index) {
+        checkElementIndex(index, tokens.length);
+        String token = tokens[index];
+        if (token == null) {
+            tokens[index] = token = createToken(index);
+        }
+        return token;
+    }
+
+    private String createToken(int index) {
+        int contentStart = spans[index * SPAN_SIZE + 2];
+        int contentEnd = spans[index * SPAN_SIZE + 3];
+        if (!escaped.get(index)) {
+            return line.subSequence(contentStart, contentEnd).toString();
+        }
+        StringBuilder builder = new StringBuilder(contentEnd - contentStart);
+        for (int i = contentStart; i < contentEnd; i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < contentEnd) {
+                c = line.charAt(++i);
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get the offset in the line where the token at {@code index} starts,
+     * including any opening quote.
+     */
+    public int getStartOffset(int index) {
+        checkElementIndex(index, tokens.length);
+        return spans[index * SPAN_SIZE];
+    }
+
+    /**
+     * Get the offset in the line just after the token at {@code index} ends,
+     * including any closing quote.
+     */
+    public int getEndOffset(int index) {
+        checkElementIndex(index, tokens.length);
+        return spans[index * SPAN_SIZE + 1];
+    }
+
+}
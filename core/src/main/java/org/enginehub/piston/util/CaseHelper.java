@@ -59,6 +59,34 @@ public class CaseHelper {
             }).collect(joining(" "));
     }
 
+    /**
+     * Fold the case of each character, so that strings that are equal ignoring
+     * case, as by {@link String#regionMatches(boolean, int, String, int, int)},
+     * fold to equal strings. The length is unchanged.
+     *
+     * @param value the string to fold
+     * @return the case-folded string
+     * @since 0.5.11
+     */
+    public static String foldCase(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = foldCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Fold the case of a character, as by {@link #foldCase(String)}.
+     *
+     * @param c the character to fold
+     * @return the case-folded character
+     * @since 0.5.11
+     */
+    public static char foldCase(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
     /**
      * Convert a string from title case to camel case.
      *
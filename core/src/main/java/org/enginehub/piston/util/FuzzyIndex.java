@@ -0,0 +1,221 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.util;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.enginehub.piston.util.CaseHelper.foldCase;
+
+/**
+ * An immutable, case-insensitive index for finding keys close to a possibly
+ * mistyped query, by edit distance. It is a BK-tree, so a query only visits
+ * the part of the tree that can be within the distance.
+ *
+ * @param <V> the value type
+ * @since 0.5.11
+ */
+public final class FuzzyIndex<V> {
+
+    /**
+     * Get a maximum distance that suits typos in {@code query}. Short queries
+     * get none, as almost anything is close to them.
+     *
+     * @param query the query
+     * @return the maximum distance, at most {@code 2}
+     */
+    public static int typoDistance(String query) {
+        return Math.min(2, query.length() / 3);
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    public static final class Builder<V> {
+
+        @Nullable
+        private Node<V> root;
+
+        private Builder() {
+        }
+
+        /**
+         * Add {@code value} under {@code key}. Keys that only differ in case
+         * share a node, and keep all of their values.
+         */
+        public Builder<V> put(String key, V value) {
+            String folded = foldCase(key);
+            if (root == null) {
+                root = new Node<>(folded);
+                root.values.add(value);
+                return this;
+            }
+            Node<V> node = root;
+            while (true) {
+                int distance = distance(folded, node.key, Integer.MAX_VALUE);
+                if (distance == 0) {
+                    node.values.add(value);
+                    return this;
+                }
+                Node<V> child = node.children.get(distance);
+                if (child == null) {
+                    child = new Node<>(folded);
+                    child.values.add(value);
+                    node.children.put(distance, child);
+                    return this;
+                }
+                node = child;
+            }
+        }
+
+        public FuzzyIndex<V> build() {
+            FuzzyIndex<V> index = new FuzzyIndex<>(root);
+            // nodes are shared with the index, so this builder must not change them
+            root = root == null ? null : root.copy();
+            return index;
+        }
+    }
+
+    private static final class Node<V> {
+        final String key;
+        final List<V> values = new ArrayList<>(1);
+        /**
+         * Children by their distance from this node.
+         */
+        final Map<Integer, Node<V>> children = new HashMap<>();
+
+        Node(String key) {
+            this.key = key;
+        }
+
+        Node<V> copy() {
+            Node<V> copy = new Node<>(key);
+            copy.values.addAll(values);
+            children.forEach((distance, child) -> copy.children.put(distance, child.copy()));
+            return copy;
+        }
+    }
+
+    private static final class Match<V> {
+        final int distance;
+        final String key;
+        final V value;
+
+        Match(int distance, String key, V value) {
+            this.distance = distance;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final Comparator<Match<?>> MATCH_ORDER = Comparator.<Match<?>>comparingInt(m -> m.distance)
+        .thenComparing(m -> m.key);
+
+    /**
+     * Compute the Levenshtein distance between {@code a} and {@code b}, or any
+     * value over {@code max} if it is more than {@code max}.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max == Integer.MAX_VALUE ? max : max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                // every later row is at least as far
+                return rowMin;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    @Nullable
+    private final Node<V> root;
+
+    private FuzzyIndex(@Nullable Node<V> root) {
+        this.root = root;
+    }
+
+    /**
+     * Find the values with keys within {@code maxDistance} edits of {@code query},
+     * ignoring case.
+     *
+     * @param query the query
+     * @param maxDistance the most edits a key may be from the query
+     * @param limit the most values to return
+     * @return the values, nearest first
+     */
+    public ImmutableList<V> nearest(String query, int maxDistance, int limit) {
+        if (root == null || limit <= 0) {
+            return ImmutableList.of();
+        }
+        String folded = foldCase(query);
+        List<Match<V>> matches = new ArrayList<>();
+        Deque<Node<V>> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node<V> node = pending.pop();
+            int distance = distance(folded, node.key, Integer.MAX_VALUE);
+            if (distance <= maxDistance) {
+                for (V value : node.values) {
+                    matches.add(new Match<>(distance, node.key, value));
+                }
+            }
+            // by the triangle inequality, only these children can be close enough
+            for (int d = Math.max(1, distance - maxDistance); d <= distance + maxDistance; d++) {
+                Node<V> child = node.children.get(d);
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+        matches.sort(MATCH_ORDER);
+        ImmutableList.Builder<V> result = ImmutableList.builder();
+        for (int i = 0; i < Math.min(limit, matches.size()); i++) {
+            result.add(matches.get(i).value);
+        }
+        return result.build();
+    }
+
+}
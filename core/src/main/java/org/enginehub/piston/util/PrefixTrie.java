@@ -0,0 +1,255 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.util;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Streams;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.enginehub.piston.util.CaseHelper.foldCase;
+
+/**
+ * An immutable, case-insensitive compressed prefix trie (radix trie).
+ *
+ * <p>
+ * Finding the entries for a prefix takes time proportional to the prefix,
+ * and they are produced lazily in case-insensitive key order, so limiting
+ * the returned stream stops the walk early.
+ * </p>
+ *
+ * <p>
+ * Case is folded per character, the same way as
+ * {@link String#regionMatches(boolean, int, String, int, int)}.
+ * </p>
+ *
+ * @param <V> the value type
+ * @since 0.5.11
+ */
+public final class PrefixTrie<V> {
+
+    private static final PrefixTrie<Object> EMPTY = new PrefixTrie<>(
+        new Node<>("", ImmutableList.of(), ImmutableList.of())
+    );
+
+    @SuppressWarnings("unchecked")
+    public static <V> PrefixTrie<V> of() {
+        return (PrefixTrie<V>) EMPTY;
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    public static final class Builder<V> {
+
+        private final List<Map.Entry<String, V>> entries = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Add {@code value} under {@code key}. Keys that only differ in case,
+         * or are repeated, keep all of their values.
+         */
+        public Builder<V> put(String key, V value) {
+            entries.add(Maps.immutableEntry(key, value));
+            return this;
+        }
+
+        public PrefixTrie<V> build() {
+            if (entries.isEmpty()) {
+                return of();
+            }
+            List<Folded<V>> folded = new ArrayList<>(entries.size());
+            for (Map.Entry<String, V> entry : entries) {
+                folded.add(new Folded<>(foldCase(entry.getKey()), entry));
+            }
+            // stable, so equal keys keep insertion order
+            folded.sort(Comparator.comparing(f -> f.key));
+            return new PrefixTrie<>(buildNode("", folded, 0, folded.size(), 0));
+        }
+    }
+
+    private static final class Folded<V> {
+        final String key;
+        final Map.Entry<String, V> entry;
+
+        Folded(String key, Map.Entry<String, V> entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    private static final class Node<V> {
+        /**
+         * The folded characters on the edge from the parent to this node.
+         */
+        final String label;
+        /**
+         * Sorted by the first character of their label.
+         */
+        final ImmutableList<Node<V>> children;
+        final ImmutableList<Map.Entry<String, V>> entries;
+
+        Node(String label, ImmutableList<Node<V>> children, ImmutableList<Map.Entry<String, V>> entries) {
+            this.label = label;
+            this.children = children;
+            this.entries = entries;
+        }
+
+        @Nullable
+        Node<V> child(char c) {
+            int low = 0;
+            int high = children.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midChar = children.get(mid).label.charAt(0);
+                if (midChar < c) {
+                    low = mid + 1;
+                } else if (midChar > c) {
+                    high = mid - 1;
+                } else {
+                    return children.get(mid);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Build the node for the sorted keys in {@code [from, to)}, which all
+     * share their first {@code depth} characters.
+     */
+    private static <V> Node<V> buildNode(String label, List<Folded<V>> keys, int from, int to, int depth) {
+        ImmutableList.Builder<Map.Entry<String, V>> entries = ImmutableList.builder();
+        int i = from;
+        while (i < to && keys.get(i).key.length() == depth) {
+            entries.add(keys.get(i).entry);
+            i++;
+        }
+        ImmutableList.Builder<Node<V>> children = ImmutableList.builder();
+        while (i < to) {
+            String first = keys.get(i).key;
+            char c = first.charAt(depth);
+            int end = i + 1;
+            while (end < to && keys.get(end).key.charAt(depth) == c) {
+                end++;
+            }
+            // compress the edge to the longest prefix shared by the group
+            String last = keys.get(end - 1).key;
+            int shared = depth + 1;
+            int max = Math.min(first.length(), last.length());
+            while (shared < max && first.charAt(shared) == last.charAt(shared)) {
+                shared++;
+            }
+            children.add(buildNode(first.substring(depth, shared), keys, i, end, shared));
+            i = end;
+        }
+        return new Node<>(label, children.build(), entries.build());
+    }
+
+    private final Node<V> root;
+
+    private PrefixTrie(Node<V> root) {
+        this.root = root;
+    }
+
+    public boolean isEmpty() {
+        return root.entries.isEmpty() && root.children.isEmpty();
+    }
+
+    /**
+     * Get the entries whose key starts with {@code prefix}, ignoring case,
+     * including keys equal to it.
+     *
+     * @param prefix the prefix to look up
+     * @return the entries, with their original keys, in key order
+     */
+    public Stream<Map.Entry<String, V>> entriesWithPrefix(String prefix) {
+        Node<V> node = root;
+        int index = 0;
+        while (index < prefix.length()) {
+            node = node.child(foldCase(prefix.charAt(index)));
+            if (node == null) {
+                return Stream.empty();
+            }
+            String label = node.label;
+            int remaining = prefix.length() - index;
+            for (int i = 1; i < Math.min(label.length(), remaining); i++) {
+                if (label.charAt(i) != foldCase(prefix.charAt(index + i))) {
+                    return Stream.empty();
+                }
+            }
+            index += label.length();
+        }
+        return Streams.stream(new SubtreeIterator<>(node));
+    }
+
+    /**
+     * Get the values whose key starts with {@code prefix}, ignoring case.
+     *
+     * @param prefix the prefix to look up
+     * @return the values, in key order
+     */
+    public Stream<V> valuesWithPrefix(String prefix) {
+        return entriesWithPrefix(prefix).map(Map.Entry::getValue);
+    }
+
+    /**
+     * Walks a subtree depth-first, producing entries as it goes.
+     */
+    private static final class SubtreeIterator<V> extends AbstractIterator<Map.Entry<String, V>> {
+
+        private final Deque<Node<V>> pending = new ArrayDeque<>();
+        private Iterator<Map.Entry<String, V>> current;
+
+        SubtreeIterator(Node<V> start) {
+            pending.push(start);
+            current = ImmutableList.<Map.Entry<String, V>>of().iterator();
+        }
+
+        @Override
+        protected Map.Entry<String, V> computeNext() {
+            while (!current.hasNext()) {
+                Node<V> next = pending.poll();
+                if (next == null) {
+                    return endOfData();
+                }
+                for (int i = next.children.size() - 1; i >= 0; i--) {
+                    pending.push(next.children.get(i));
+                }
+                current = next.entries.iterator();
+            }
+            return current.next();
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("A CommandScheduler")
+public class CommandSchedulerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Integer> ran = new ArrayList<>();
+
+    private CommandParseResult command(int id) {
+        Command command = mock(Command.class);
+        when(command.getAction()).thenReturn(params -> {
+            ran.add(id);
+            // each command takes 10ns
+            clock.addAndGet(10);
+            return id;
+        });
+        CommandParseResult result = mock(CommandParseResult.class);
+        when(result.getPrimaryCommand()).thenReturn(command);
+        return result;
+    }
+
+    @Test
+    @DisplayName("runs commands by priority within the tick budget")
+    void runsWithinBudget() {
+        CommandScheduler scheduler = new CommandScheduler(3, 20, clock::get);
+        scheduler.submit(command(1), 0);
+        scheduler.submit(command(2), 5);
+        scheduler.submit(command(3), 0);
+        assertThrows(RejectedExecutionException.class, () -> scheduler.submit(command(4), 0));
+
+        assertEquals(2, scheduler.runTick());
+        assertEquals(1, scheduler.runTick());
+        assertEquals(List.of(2, 1, 3), ran);
+        CommandScheduler.Stats stats = scheduler.getStats();
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(3, stats.getExecutedCount());
+        assertEquals(1, stats.getRejectedCount());
+        assertEquals(20, stats.getMaxWaitNanos());
+    }
+
+}
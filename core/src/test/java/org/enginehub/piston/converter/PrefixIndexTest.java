@@ -0,0 +1,43 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.converter;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PrefixIndexTest {
+
+    private final PrefixIndex index = PrefixIndex.of(ImmutableList.of("world", "Wool", "wood", "stone", "wo"));
+
+    @Test
+    void findsLongerChoicesByPrefixIgnoringCase() {
+        assertEquals(ImmutableList.of("wood", "Wool", "world"), index.withPrefix("WO"));
+        assertEquals(ImmutableList.of("wo", "wood", "Wool", "world"), index.withPrefix("w"));
+        assertEquals(ImmutableList.of(), index.withPrefix("x"));
+    }
+
+    @Test
+    void stopsAtLimit() {
+        assertEquals(ImmutableList.of("stone", "wo"), index.withPrefix("", 2));
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.enginehub.piston.tokenizer;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CommandLineTokenizerTest {
+
+    @Test
+    void splitsOnWhitespace() {
+        TokenizedLine line = CommandLineTokenizer.tokenize("  cmd arg1   arg2 ");
+        assertEquals(ImmutableList.of("cmd", "arg1", "arg2"), line);
+        assertEquals(6, line.getStartOffset(1));
+        assertEquals(10, line.getEndOffset(1));
+    }
+
+    @Test
+    void quotesAndEscapes() {
+        TokenizedLine line = CommandLineTokenizer.tokenize("cmd \"a b\" 'c\\'d' e\\ f \"open");
+        assertEquals(ImmutableList.of("cmd", "a b", "c'd", "e f", "open"), line);
+        assertEquals(4, line.getStartOffset(1));
+        assertEquals(9, line.getEndOffset(1));
+    }
+
+    @Test
+    void addsTrailingTokenForSuggestions() {
+        TokenizedLine line = CommandLineTokenizer.tokenizeForSuggestions("cmd ");
+        assertEquals(ImmutableList.of("cmd", ""), line);
+        assertEquals(4, line.getStartOffset(1));
+        assertEquals(ImmutableList.of("cmd"), CommandLineTokenizer.tokenizeForSuggestions("cmd"));
+    }
+
+}
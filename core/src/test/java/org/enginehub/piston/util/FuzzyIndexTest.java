@@ -0,0 +1,54 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.util;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FuzzyIndexTest {
+
+    private final FuzzyIndex<Integer> index = FuzzyIndex.<Integer>builder()
+        .put("teleport", 0)
+        .put("tell", 1)
+        .put("Test", 2)
+        .put("apple", 3)
+        .put("text", 4)
+        .build();
+
+    @Test
+    void findsNearestIgnoringCase() {
+        assertEquals(ImmutableList.of(2, 4, 1),
+            index.nearest("TEST", 2, 10));
+        assertEquals(ImmutableList.of(0),
+            index.nearest("telport", 1, 10));
+        assertEquals(ImmutableList.of(2),
+            index.nearest("tset", 2, 1));
+    }
+
+    @Test
+    void boundsDistance() {
+        assertEquals(3, FuzzyIndex.distance("kitten", "sitting", Integer.MAX_VALUE));
+        assertEquals(ImmutableList.of(), index.nearest("zzz", 1, 10));
+        assertEquals(0, FuzzyIndex.typoDistance("te"));
+    }
+
+}
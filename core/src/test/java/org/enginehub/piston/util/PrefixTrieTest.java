@@ -0,0 +1,54 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.util;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PrefixTrieTest {
+
+    private final PrefixTrie<Integer> trie = PrefixTrie.<Integer>builder()
+        .put("test", 0)
+        .put("Teleport", 1)
+        .put("tell", 2)
+        .put("apple", 3)
+        .put("TEST", 4)
+        .build();
+
+    @Test
+    void findsByPrefixIgnoringCase() {
+        assertEquals(ImmutableList.of(1, 2, 0, 4),
+            trie.valuesWithPrefix("TE").collect(toImmutableList()));
+        assertEquals(ImmutableList.of(1, 2),
+            trie.valuesWithPrefix("tel").collect(toImmutableList()));
+        assertEquals(ImmutableList.of(),
+            trie.valuesWithPrefix("testing").collect(toImmutableList()));
+    }
+
+    @Test
+    void iteratesInKeyOrder() {
+        assertEquals(ImmutableList.of(3, 1),
+            trie.valuesWithPrefix("").limit(2).collect(toImmutableList()));
+    }
+
+}
@@ -19,51 +19,108 @@
 
 package org.enginehub.piston.impl;
 
-import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.enginehub.piston.ArgBinding;
+import org.enginehub.piston.Command;
 import org.enginehub.piston.part.CommandPart;
 
-import java.util.Map;
+import javax.annotation.Nullable;
 
-@AutoValue
-abstract class ArgBindingImpl implements ArgBinding {
+/**
+ * A view of one argument's entries in a {@link BindingTable}. The parts are only
+ * looked up when they are asked for.
+ */
+final class ArgBindingImpl implements ArgBinding {
+
+    private final String input;
+    private final BindingTable bindings;
+    private final ImmutableList<Command> executionPath;
+    private final int firstEntry;
+    private final int endEntry;
+    private final int startOffset;
+    private final int endOffset;
+    @Nullable
+    private ImmutableMap<CommandPart, Boolean> partsMap;
 
-    static Builder builder() {
-        return new AutoValue_ArgBindingImpl.Builder();
+    ArgBindingImpl(String input, BindingTable bindings, ImmutableList<Command> executionPath,
+                   int firstEntry, int endEntry, int startOffset, int endOffset) {
+        this.input = input;
+        this.bindings = bindings;
+        this.executionPath = executionPath;
+        this.firstEntry = firstEntry;
+        this.endEntry = endEntry;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
     }
 
-    @AutoValue.Builder
-    interface Builder {
+    private CommandPart part(int entry) {
+        return executionPath.get(bindings.pathIndex(entry)).getParts().get(bindings.ordinal(entry));
+    }
 
-        Builder input(String name);
+    private ImmutableMap<CommandPart, Boolean> getPartsMap() {
+        ImmutableMap<CommandPart, Boolean> result = partsMap;
+        if (result == null) {
+            ImmutableMap.Builder<CommandPart, Boolean> builder = ImmutableMap.builder();
+            for (int entry = firstEntry; entry < endEntry; entry++) {
+                builder.put(part(entry), bindings.isExact(entry));
+            }
+            partsMap = result = builder.build();
+        }
+        return result;
+    }
 
-        Builder partsMap(Map<CommandPart, Boolean> parts);
+    @Override
+    public String getInput() {
+        return input;
+    }
 
-        ArgBindingImpl build();
+    @Override
+    public boolean isExactMatch(CommandPart part) {
+        for (int entry = firstEntry; entry < endEntry; entry++) {
+            if (part(entry).equals(part)) {
+                return bindings.isExact(entry);
+            }
+        }
+        throw new IllegalArgumentException("Part " + part + " is not in the parts map");
     }
 
-    ArgBindingImpl() {
+    @Override
+    public ImmutableSet<CommandPart> getParts() {
+        return getPartsMap().keySet();
     }
 
     @Override
-    public abstract String getInput();
+    public int getStartOffset() {
+        return startOffset;
+    }
 
-    abstract ImmutableMap<CommandPart, Boolean> getPartsMap();
+    @Override
+    public int getEndOffset() {
+        return endOffset;
+    }
 
     @Override
-    public boolean isExactMatch(CommandPart part) {
-        Boolean result = getPartsMap().get(part);
-        if (result == null) {
-            throw new IllegalArgumentException("Part " + part + " is not in the parts map");
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
         }
-        return result;
+        if (!(o instanceof ArgBindingImpl)) {
+            return false;
+        }
+        ArgBindingImpl that = (ArgBindingImpl) o;
+        return input.equals(that.input) && getPartsMap().equals(that.getPartsMap());
     }
 
     @Override
-    public final ImmutableSet<CommandPart> getParts() {
-        return getPartsMap().keySet();
+    public int hashCode() {
+        return input.hashCode() * 1000003 ^ getPartsMap().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ArgBindingImpl{input=" + input + ", partsMap=" + getPartsMap() + "}";
     }
 
 }
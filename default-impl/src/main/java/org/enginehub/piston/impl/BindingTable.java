@@ -0,0 +1,157 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.impl;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Compact record of the parts each argument was bound to while parsing.
+ *
+ * <p>
+ * Each entry is packed into three ints: the argument index, the index of
+ * the command in the execution path, and the part ordinal in that command
+ * shifted left by one, with the low bit set for an exact match. Entries are
+ * stored in argument order.
+ * </p>
+ */
+final class BindingTable {
+
+    private static final int ENTRY_SIZE = 3;
+    private static final int[] EMPTY = new int[0];
+
+    private int[] entries;
+    private int size;
+    private int boundArguments;
+
+    BindingTable() {
+        this.entries = EMPTY;
+    }
+
+    private BindingTable(int[] entries, int size, int boundArguments) {
+        this.entries = entries;
+        this.size = size;
+        this.boundArguments = boundArguments;
+    }
+
+    /**
+     * Bind the argument at {@code argument} to a part.
+     */
+    void add(int argument, int pathIndex, int ordinal, boolean exact) {
+        checkState(argument >= boundArguments, "Argument %s is already bound", argument);
+        int offset = size * ENTRY_SIZE;
+        if (offset == entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(ENTRY_SIZE * 8, entries.length * 2));
+        }
+        entries[offset] = argument;
+        entries[offset + 1] = pathIndex;
+        entries[offset + 2] = (ordinal << 1) | (exact ? 1 : 0);
+        size++;
+    }
+
+    /**
+     * Check if there are any parts bound to the argument at {@code argument}.
+     */
+    boolean hasEntries(int argument) {
+        return size > 0 && entries[(size - 1) * ENTRY_SIZE] == argument;
+    }
+
+    /**
+     * Mark all arguments up to and including {@code argument} as bound.
+     */
+    void completeArgument(int argument) {
+        boundArguments = Math.max(boundArguments, argument + 1);
+    }
+
+    /**
+     * The number of arguments that have been bound.
+     */
+    int boundArguments() {
+        return boundArguments;
+    }
+
+    /**
+     * The number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    int argument(int entry) {
+        return entries[entry * ENTRY_SIZE];
+    }
+
+    int pathIndex(int entry) {
+        return entries[entry * ENTRY_SIZE + 1];
+    }
+
+    int ordinal(int entry) {
+        return entries[entry * ENTRY_SIZE + 2] >>> 1;
+    }
+
+    boolean isExact(int entry) {
+        return (entries[entry * ENTRY_SIZE + 2] & 1) != 0;
+    }
+
+    /**
+     * Drop entries back to an earlier state.
+     */
+    void truncate(int size, int boundArguments) {
+        checkState(size <= this.size, "Cannot truncate to a larger size");
+        this.size = size;
+        this.boundArguments = boundArguments;
+    }
+
+    /**
+     * Copy the current state, for use after parsing has moved on.
+     */
+    BindingTable copy() {
+        return new BindingTable(Arrays.copyOf(entries, size * ENTRY_SIZE), size, boundArguments);
+    }
+
+    /**
+     * Tables are equal if they hold the same entries, so parse results keep value equality.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BindingTable)) {
+            return false;
+        }
+        BindingTable that = (BindingTable) o;
+        int length = size * ENTRY_SIZE;
+        return size == that.size
+            && boundArguments == that.boundArguments
+            && Arrays.equals(entries, 0, length, that.entries, 0, length);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = boundArguments;
+        for (int i = 0; i < size * ENTRY_SIZE; i++) {
+            result = 31 * result + entries[i];
+        }
+        return result;
+    }
+
+}
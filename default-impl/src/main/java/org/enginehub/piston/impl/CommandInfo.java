@@ -21,8 +21,9 @@ package org.enginehub.piston.impl;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableTable;
 import org.enginehub.piston.Command;
+import org.enginehub.piston.converter.ArgumentConverter;
+import org.enginehub.piston.inject.Key;
 import org.enginehub.piston.part.ArgAcceptingCommandFlag;
 import org.enginehub.piston.part.ArgAcceptingCommandPart;
 import org.enginehub.piston.part.ArgConsumingCommandPart;
@@ -32,28 +33,57 @@ import org.enginehub.piston.part.CommandPart;
 import org.enginehub.piston.part.NoArgCommandFlag;
 import org.enginehub.piston.part.SubCommandPart;
 
-import java.util.stream.IntStream;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
+/**
+ * The parse plan for a command. Everything here is computed once, when the
+ * command is first seen, so that parsing only needs to track cursors and bits.
+ *
+ * <p>
+ * Parts are referred to by their <em>ordinal</em>, which is their index in
+ * {@link Command#getParts()}.
+ * </p>
+ */
 class CommandInfo {
 
     static CommandInfo from(Command command) {
+        ImmutableList<CommandPart> parts = command.getParts();
         ImmutableList.Builder<ArgConsumingCommandPart> arguments = ImmutableList.builder();
-        ImmutableList.Builder<ArgAcceptingCommandPart> defaultProvided = ImmutableList.builder();
-        ImmutableMap.Builder<Character, CommandFlag> flags = ImmutableMap.builder();
-        ImmutableTable.Builder<SubCommandPart, String, Command> subCommandTable = ImmutableTable.builder();
+        int[] argumentOrdinals = new int[parts.size()];
+        int argumentCount = 0;
+        int[] asciiFlagOrdinals = new int[ASCII_LIMIT];
+        Arrays.fill(asciiFlagOrdinals, -1);
+        long[] asciiFlagMask = new long[ASCII_LIMIT / Long.SIZE];
+        ImmutableMap.Builder<Character, Integer> extendedFlagOrdinals = ImmutableMap.builder();
+        ImmutableList.Builder<ImmutableMap<String, Command>> subCommandDispatch = ImmutableList.builder();
+        BitSet defaultMask = new BitSet(parts.size());
+        BitSet argFlagMask = new BitSet(parts.size());
+        ImmutableList.Builder<ImmutableList<Key<?>>> partTypes = ImmutableList.builderWithExpectedSize(parts.size());
+        boolean hasSubCommands = false;
         boolean seenRequiredSubCommand = false;
         boolean seenOptionalArg = false;
         boolean middleOptionalArg = false;
-        ImmutableList<CommandPart> parts = command.getParts();
         int requiredParts = 0;
         for (int i = 0; i < parts.size(); i++) {
             CommandPart part = parts.get(i);
             if (part instanceof ArgAcceptingCommandFlag || part instanceof NoArgCommandFlag) {
-                CommandFlag flag = (CommandFlag) part;
-                flags.put(flag.getName(), flag);
+                char name = ((CommandFlag) part).getName();
+                if (name < ASCII_LIMIT) {
+                    checkArgument(asciiFlagOrdinals[name] == -1,
+                        "Duplicate flag %s in %s", name, command.getName());
+                    asciiFlagOrdinals[name] = i;
+                    asciiFlagMask[name / Long.SIZE] |= 1L << name;
+                } else {
+                    extendedFlagOrdinals.put(name, i);
+                }
             } else if (part instanceof CommandArgument) {
                 if (part.isRequired() && seenOptionalArg) {
                     middleOptionalArg = true;
@@ -62,6 +92,8 @@ class CommandInfo {
                     seenOptionalArg = true;
                 }
                 arguments.add((ArgConsumingCommandPart) part);
+                argumentOrdinals[argumentCount++] = i;
+                subCommandDispatch.add(ImmutableMap.of());
             } else if (part instanceof SubCommandPart) {
                 if (part.isRequired()) {
                     checkState(i + 1 >= parts.size(),
@@ -69,13 +101,17 @@ class CommandInfo {
                     seenRequiredSubCommand = true;
                 }
                 SubCommandPart subCommandPart = (SubCommandPart) part;
+                Map<String, Command> dispatch = new LinkedHashMap<>();
                 for (Command cmd : subCommandPart.getCommands()) {
-                    subCommandTable.put(subCommandPart, cmd.getName(), cmd);
+                    putSubCommand(dispatch, cmd.getName(), cmd);
                     for (String alias : cmd.getAliases()) {
-                        subCommandTable.put(subCommandPart, alias, cmd);
+                        putSubCommand(dispatch, alias, cmd);
                     }
                 }
+                hasSubCommands |= !dispatch.isEmpty();
                 arguments.add(subCommandPart);
+                argumentOrdinals[argumentCount++] = i;
+                subCommandDispatch.add(ImmutableMap.copyOf(dispatch));
             } else {
                 throw new IllegalStateException("Unknown part implementation " + part);
             }
@@ -84,47 +120,251 @@ class CommandInfo {
             }
             if (part instanceof ArgAcceptingCommandPart) {
                 ArgAcceptingCommandPart argPart = (ArgAcceptingCommandPart) part;
+                partTypes.add(argPart.getTypes().asList());
                 if (argPart.getDefaults().size() > 0) {
-                    defaultProvided.add(argPart);
+                    defaultMask.set(i);
+                } else if (part instanceof ArgAcceptingCommandFlag) {
+                    // argument flags that don't have default values
+                    // get `null` provided for them instead
+                    argFlagMask.set(i);
                 }
+            } else {
+                partTypes.add(ImmutableList.of());
             }
         }
         // guards against a specific, hard-to-solve, edge-case
         checkState(!(seenRequiredSubCommand && middleOptionalArg),
             "Cannot have middle-filled optionals and sub-commands");
         ImmutableList<ArgConsumingCommandPart> commandArguments = arguments.build();
-        int[] indexes = IntStream.range(0, commandArguments.size())
-            .filter(idx -> commandArguments.get(idx) instanceof CommandArgument)
-            .filter(idx -> ((CommandArgument) commandArguments.get(idx)).isVariable())
-            .toArray();
-        checkArgument(indexes.length <= 1, "Too many variable arguments");
-        if (indexes.length > 0) {
-            int varargIndex = indexes[0];
+        int varargIndex = -1;
+        for (int idx = 0; idx < commandArguments.size(); idx++) {
+            ArgConsumingCommandPart argument = commandArguments.get(idx);
+            if (argument instanceof CommandArgument && ((CommandArgument) argument).isVariable()) {
+                checkArgument(varargIndex == -1, "Too many variable arguments");
+                varargIndex = idx;
+            }
+        }
+        if (varargIndex != -1) {
             checkArgument(varargIndex == commandArguments.size() - 1,
                 "Variable argument must be the last argument");
         }
         return new CommandInfo(
+            command,
             commandArguments,
-            defaultProvided.build(),
-            flags.build(),
-            subCommandTable.build(),
-            requiredParts);
+            Arrays.copyOf(argumentOrdinals, argumentCount),
+            asciiFlagMask[0],
+            asciiFlagMask[1],
+            asciiFlagOrdinals,
+            extendedFlagOrdinals.build(),
+            subCommandDispatch.build(),
+            hasSubCommands,
+            defaultMask,
+            argFlagMask,
+            requiredParts,
+            partTypes.build());
+    }
+
+    private static void putSubCommand(Map<String, Command> dispatch, String name, Command command) {
+        Command existing = dispatch.putIfAbsent(name, command);
+        checkArgument(existing == null,
+            "Duplicate sub-command name %s; existing=%s, rejected=%s", name, existing, command);
     }
 
+    private static final int ASCII_LIMIT = 128;
+
+    final Command command;
+    final ImmutableList<CommandPart> parts;
+    /**
+     * Ordinals of each part instance, compared by identity.
+     */
+    private final Map<CommandPart, Integer> partOrdinals;
+    /**
+     * The parts that consume arguments from the line, in order.
+     */
     final ImmutableList<ArgConsumingCommandPart> arguments;
-    final ImmutableList<ArgAcceptingCommandPart> defaultProvided;
-    final ImmutableMap<Character, CommandFlag> flags;
-    final ImmutableTable<SubCommandPart, String, Command> subCommandTable;
+    private final int[] argumentOrdinals;
+    /**
+     * Bits for every flag name below {@link #ASCII_LIMIT}, split into two words.
+     */
+    private final long asciiFlagsLow;
+    private final long asciiFlagsHigh;
+    /**
+     * Ordinals of flags, indexed by name, for names below {@link #ASCII_LIMIT}.
+     * Holes are {@code -1}.
+     */
+    private final int[] asciiFlagOrdinals;
+    /**
+     * Ordinals of any flags outside of the ASCII range.
+     */
+    private final ImmutableMap<Character, Integer> extendedFlagOrdinals;
+    /**
+     * For each entry in {@link #arguments}, the sub-commands by name and alias.
+     * Empty for anything that isn't a {@link SubCommandPart}.
+     */
+    private final ImmutableList<ImmutableMap<String, Command>> subCommandDispatch;
+    final boolean hasSubCommands;
+    private final BitSet defaultMask;
+    private final BitSet argFlagMask;
     final int requiredParts;
+    /**
+     * The converter types of each part, by ordinal.
+     */
+    private final ImmutableList<ImmutableList<Key<?>>> partTypes;
+    @Nullable
+    private volatile BoundConverters boundConverters;
+
+    /**
+     * The converters for each part's types, as of one version of the registry.
+     */
+    private static final class BoundConverters {
 
-    CommandInfo(ImmutableList<ArgConsumingCommandPart> arguments,
-                ImmutableList<ArgAcceptingCommandPart> defaultProvided,
-                ImmutableMap<Character, CommandFlag> flags,
-                ImmutableTable<SubCommandPart, String, Command> subCommandTable, int requiredParts) {
+        final long version;
+        /**
+         * By ordinal, then in the order of {@link #partTypes}. Missing converters
+         * are {@code null}.
+         */
+        final ArgumentConverter<?>[][] converters;
+
+        BoundConverters(long version, ArgumentConverter<?>[][] converters) {
+            this.version = version;
+            this.converters = converters;
+        }
+    }
+
+    private CommandInfo(Command command,
+                        ImmutableList<ArgConsumingCommandPart> arguments,
+                        int[] argumentOrdinals,
+                        long asciiFlagsLow,
+                        long asciiFlagsHigh,
+                        int[] asciiFlagOrdinals,
+                        ImmutableMap<Character, Integer> extendedFlagOrdinals,
+                        ImmutableList<ImmutableMap<String, Command>> subCommandDispatch,
+                        boolean hasSubCommands,
+                        BitSet defaultMask,
+                        BitSet argFlagMask,
+                        int requiredParts,
+                        ImmutableList<ImmutableList<Key<?>>> partTypes) {
+        this.command = command;
+        this.parts = command.getParts();
+        Map<CommandPart, Integer> partOrdinals = new IdentityHashMap<>();
+        for (int i = 0; i < parts.size(); i++) {
+            partOrdinals.putIfAbsent(parts.get(i), i);
+        }
+        this.partOrdinals = partOrdinals;
         this.arguments = arguments;
-        this.defaultProvided = defaultProvided;
-        this.flags = flags;
-        this.subCommandTable = subCommandTable;
+        this.argumentOrdinals = argumentOrdinals;
+        this.asciiFlagsLow = asciiFlagsLow;
+        this.asciiFlagsHigh = asciiFlagsHigh;
+        this.asciiFlagOrdinals = asciiFlagOrdinals;
+        this.extendedFlagOrdinals = extendedFlagOrdinals;
+        this.subCommandDispatch = subCommandDispatch;
+        this.hasSubCommands = hasSubCommands;
+        this.defaultMask = defaultMask;
+        this.argFlagMask = argFlagMask;
         this.requiredParts = requiredParts;
+        this.partTypes = partTypes;
+    }
+
+    /**
+     * Check if {@code c} is the name of a flag of this command.
+     */
+    boolean isFlag(char c) {
+        if (c < Long.SIZE) {
+            return (asciiFlagsLow & (1L << c)) != 0;
+        }
+        if (c < ASCII_LIMIT) {
+            return (asciiFlagsHigh & (1L << c)) != 0;
+        }
+        return extendedFlagOrdinals.containsKey(c);
+    }
+
+    /**
+     * Get the ordinal of the flag named {@code c}, or {@code -1} if there is no such flag.
+     */
+    int flagOrdinal(char c) {
+        if (c < ASCII_LIMIT) {
+            return asciiFlagOrdinals[c];
+        }
+        Integer ordinal = extendedFlagOrdinals.get(c);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Get the ordinal of {@code part}, if it is one of this command's part
+     * instances, or {@code -1}. Parts are looked up with the same instance
+     * that built the command, and this avoids hashing them.
+     */
+    int ordinalOf(CommandPart part) {
+        Integer ordinal = partOrdinals.get(part);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Get the ordinal of the argument at {@code argumentIndex} in {@link #arguments}.
+     */
+    int argumentOrdinal(int argumentIndex) {
+        return argumentOrdinals[argumentIndex];
+    }
+
+    /**
+     * Get the sub-commands for the argument at {@code argumentIndex} in {@link #arguments}.
+     */
+    ImmutableMap<String, Command> subCommands(int argumentIndex) {
+        return subCommandDispatch.get(argumentIndex);
+    }
+
+    /**
+     * Get the converter types of the part with {@code ordinal}.
+     */
+    ImmutableList<Key<?>> types(int ordinal) {
+        return partTypes.get(ordinal);
+    }
+
+    /**
+     * Get the converters for the types of the part with {@code ordinal}, in the
+     * same order. Missing converters are {@code null}. Do not modify the result.
+     */
+    ArgumentConverter<?>[] converters(int ordinal, RegistrySnapshot registry) {
+        return bound(registry).converters[ordinal];
+    }
+
+    /**
+     * Look up the converters for every part, unless they are already bound
+     * to the same version of the registry.
+     */
+    void bindConverters(RegistrySnapshot registry) {
+        bound(registry);
+    }
+
+    private BoundConverters bound(RegistrySnapshot registry) {
+        BoundConverters bound = boundConverters;
+        if (bound != null && bound.version == registry.converterVersion) {
+            return bound;
+        }
+        ArgumentConverter<?>[][] converters = new ArgumentConverter<?>[partTypes.size()][];
+        for (int i = 0; i < converters.length; i++) {
+            ImmutableList<Key<?>> types = partTypes.get(i);
+            converters[i] = new ArgumentConverter<?>[types.size()];
+            for (int j = 0; j < types.size(); j++) {
+                converters[i][j] = registry.converters.get(types.get(j));
+            }
+        }
+        bound = new BoundConverters(registry.converterVersion, converters);
+        boundConverters = bound;
+        return bound;
+    }
+
+    /**
+     * Create a new mask of the parts that have defaults to fill in.
+     */
+    BitSet newDefaultsNeeded() {
+        return (BitSet) defaultMask.clone();
+    }
+
+    /**
+     * Create a new mask of the argument flags that need a {@code null} value.
+     */
+    BitSet newArgFlagsNeeded() {
+        return (BitSet) argFlagMask.clone();
     }
 }
@@ -19,23 +19,94 @@
 
 package org.enginehub.piston.impl;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.CacheStats;
 import org.enginehub.piston.Command;
 
+import javax.annotation.Nullable;
+
 /**
  * Caches important information about a command.
+ *
+ * <p>
+ * Commands are looked up by identity, as their {@code equals} and {@code hashCode}
+ * walk the whole command tree.
+ * </p>
+ *
+ * <p>
+ * Nothing is loaded on a miss. The manager decides what may be cached, so
+ * that only registered commands are held.
+ * </p>
  */
 class CommandInfoCache {
 
-    // Cache information like flags if we can, but let GC clear it if needed.
-    private final LoadingCache<Command, CommandInfo> commandCache = CacheBuilder.newBuilder()
-        .softValues()
-        .build(CacheLoader.from(CommandInfo::from));
+    private final Cache<IdentityKey, CommandInfo> commandCache;
+
+    CommandInfoCache(CommandInfoRetention retention) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        switch (retention) {
+            case STRONG:
+                break;
+            case SOFT:
+                builder.softValues();
+                break;
+            case WEAK:
+                builder.weakValues();
+                break;
+            default:
+                throw new AssertionError("Unknown retention: " + retention);
+        }
+        this.commandCache = builder.build();
+    }
+
+    @Nullable
+    CommandInfo getIfPresent(Command command) {
+        return commandCache.getIfPresent(new IdentityKey(command));
+    }
+
+    /**
+     * Cache {@code info} for {@code command}, unless some is already cached.
+     *
+     * @return the cached information
+     */
+    CommandInfo putIfAbsent(Command command, CommandInfo info) {
+        CommandInfo existing = commandCache.asMap().putIfAbsent(new IdentityKey(command), info);
+        return existing == null ? info : existing;
+    }
+
+    /**
+     * Drop the information for {@code command}, but not its sub-commands.
+     */
+    void invalidate(Command command) {
+        commandCache.invalidate(new IdentityKey(command));
+    }
+
+    long size() {
+        return commandCache.size();
+    }
+
+    CacheStats stats() {
+        return commandCache.stats();
+    }
+
+    private static final class IdentityKey {
+
+        final Command command;
+
+        IdentityKey(Command command) {
+            this.command = command;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).command == command;
+        }
 
-    public CommandInfo getInfo(Command command) {
-        return commandCache.getUnchecked(command);
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(command);
+        }
     }
 
 }
@@ -0,0 +1,42 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.impl;
+
+/**
+ * How {@link CommandManagerImpl} holds the parse information it computes for each command.
+ *
+ * @since 0.5.11
+ */
+public enum CommandInfoRetention {
+    /**
+     * Keep the information until the command is unregistered. This is the default.
+     */
+    STRONG,
+    /**
+     * Let the garbage collector clear the information in response to memory demand.
+     * It is recomputed when needed.
+     */
+    SOFT,
+    /**
+     * Let the garbage collector clear the information when no parse is using it.
+     * It is recomputed when needed.
+     */
+    WEAK,
+}
@@ -19,46 +19,76 @@
 
 package org.enginehub.piston.impl;
 
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Comparators;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
 import org.enginehub.piston.Command;
 import org.enginehub.piston.CommandManager;
-import org.enginehub.piston.CommandMetadata;
 import org.enginehub.piston.CommandParseResult;
+import org.enginehub.piston.ExecutionResult;
+import org.enginehub.piston.ParseOutcome;
 import org.enginehub.piston.converter.ArgumentConverter;
 import org.enginehub.piston.converter.ArgumentConverters;
+import org.enginehub.piston.exception.CommandException;
+import org.enginehub.piston.exception.ConditionFailedException;
 import org.enginehub.piston.exception.NoSuchCommandException;
 import org.enginehub.piston.exception.UsageException;
 import org.enginehub.piston.inject.InjectedValueAccess;
 import org.enginehub.piston.inject.Key;
 import org.enginehub.piston.inject.MemoizingValueAccess;
+import org.enginehub.piston.part.ArgAcceptingCommandPart;
 import org.enginehub.piston.part.SubCommandPart;
+import org.enginehub.piston.suggestion.DefaultSuggestionProvider;
 import org.enginehub.piston.suggestion.Suggestion;
+import org.enginehub.piston.suggestion.SuggestionSession;
+import org.enginehub.piston.tokenizer.TokenizedLine;
 
 import javax.annotation.Nullable;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.Predicate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static org.enginehub.piston.converter.SuggestionHelper.byPrefix;
+import static org.enginehub.piston.converter.SuggestionHelper.commandsByPrefix;
 
 public class CommandManagerImpl implements CommandManager {
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    private final Map<String, Command> commands = new HashMap<>();
-    private final Map<Key<?>, ArgumentConverter<?>> converters = new HashMap<>();
-    private final CommandInfoCache commandInfoCache = new CommandInfoCache();
+    private final AtomicReference<RegistrySnapshot> registry = new AtomicReference<>(RegistrySnapshot.EMPTY);
+    private final CommandInfoCache commandInfoCache;
+    private volatile ParseTracer parseTracer = ParseTracer.noOp();
+    private volatile boolean stacklessExceptions;
+    @Nullable
+    private volatile SuggestionCache suggestionCache;
 
     public CommandManagerImpl() {
+        this(CommandInfoRetention.STRONG);
+    }
+
+    /**
+     * Create a manager that holds the parse information for its commands
+     * as specified by {@code retention}.
+     *
+     * @since 0.5.11
+     */
+    public CommandManagerImpl(CommandInfoRetention retention) {
+        this.commandInfoCache = new CommandInfoCache(retention);
         registerConverter(Key.of(String.class), ArgumentConverters.forString());
         for (Class<?> wrapperType : ImmutableList.of(
             Byte.class, Short.class, Integer.class, Long.class,
@@ -72,6 +102,83 @@ public class CommandManagerImpl implements CommandManager {
         }
     }
 
+    /**
+     * Get the tracer that receives parse events.
+     *
+     * @since 0.5.11
+     */
+    public ParseTracer getParseTracer() {
+        return parseTracer;
+    }
+
+    /**
+     * Set the tracer that receives parse events. Use {@link ParseTracer#noOp()}
+     * to turn tracing off.
+     *
+     * @since 0.5.11
+     */
+    public void setParseTracer(ParseTracer parseTracer) {
+        this.parseTracer = checkNotNull(parseTracer);
+    }
+
+    /**
+     * Check if exceptions for bad input are created without stack traces.
+     *
+     * @since 0.5.11
+     */
+    public boolean isStacklessExceptions() {
+        return stacklessExceptions;
+    }
+
+    /**
+     * Set if exceptions for bad input, such as {@link UsageException} and
+     * {@link ConditionFailedException}, are created without stack traces.
+     * Their stack traces only point into the parser, so this is a cheap way
+     * to handle large amounts of bad input. Off by default.
+     *
+     * @since 0.5.11
+     */
+    public void setStacklessExceptions(boolean stacklessExceptions) {
+        this.stacklessExceptions = stacklessExceptions;
+    }
+
+    /**
+     * Get the hit, miss and eviction counts of the cache of parse information.
+     *
+     * @since 0.5.11
+     */
+    public CacheStats getCommandInfoStats() {
+        return commandInfoCache.stats();
+    }
+
+    /**
+     * Get how many commands have cached parse information.
+     */
+    long cachedCommandInfoCount() {
+        return commandInfoCache.size();
+    }
+
+    /**
+     * Set how suggestions are cached, or {@code null} to not cache them. This
+     * replaces any existing cache. Off by default.
+     *
+     * @since 0.5.11
+     */
+    public void setSuggestionCachePolicy(@Nullable SuggestionCachePolicy policy) {
+        this.suggestionCache = policy == null ? null : new SuggestionCache(policy);
+    }
+
+    /**
+     * Get the hit, miss and eviction counts of the suggestion cache, which are
+     * all zero if there is none.
+     *
+     * @since 0.5.11
+     */
+    public CacheStats getSuggestionCacheStats() {
+        SuggestionCache cache = suggestionCache;
+        return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+    }
+
     @Override
     public Command.Builder newCommand(String name) {
         return CommandImpl.builder(name);
@@ -79,168 +186,438 @@ public class CommandManagerImpl implements CommandManager {
 
     @Override
     public void register(Command command) {
-        // Run it through the cache for a validity check,
-        // and so that we can cache many commands in high-memory situations.
-        validateAndCache(command, new HashSet<>());
-        lock.writeLock().lock();
-        try {
-            registerIfAvailable(command.getName(), command);
-            for (String alias : command.getAliases()) {
-                registerIfAvailable(alias, command);
+        // Compute the parse information as a validity check, but only cache it
+        // once the command is registered, so rejected commands are not held.
+        Map<Command, CommandInfo> infos = new IdentityHashMap<>();
+        validate(command, new HashSet<>(), infos);
+        registry.updateAndGet(r -> r.withCommand(command));
+        cacheInfos(ImmutableList.of(command), infos);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Each command tree is validated in parallel, and if all are valid,
+     * they are registered together. Otherwise, none are registered.
+     * </p>
+     */
+    @Override
+    public void registerAll(Collection<Command> commands) {
+        ImmutableList<Command> copy = ImmutableList.copyOf(commands);
+        Map<Command, CommandInfo> infos = validateAll(copy);
+        registry.updateAndGet(r -> r.withCommands(copy));
+        cacheInfos(copy, infos);
+    }
+
+    @Override
+    public boolean unregister(Command command) {
+        return publish(r -> r.withoutCommand(command));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The new commands are validated before anything is replaced. Cached
+     * information about commands that are kept is not discarded.
+     * </p>
+     */
+    @Override
+    public void replace(String namespace, Collection<Command> commands) {
+        ImmutableList<Command> copy = ImmutableList.copyOf(commands);
+        Map<Command, CommandInfo> infos = validateAll(copy);
+        publish(r -> r.withNamespace(namespace, copy));
+        cacheInfos(copy, infos);
+    }
+
+    /**
+     * Update the registry, and drop cached information for commands it no longer
+     * reaches, even as sub-commands.
+     *
+     * @return {@code true} if any commands were removed
+     */
+    private boolean publish(UnaryOperator<RegistrySnapshot> update) {
+        RegistrySnapshot previous;
+        RegistrySnapshot next;
+        do {
+            previous = registry.get();
+            next = update.apply(previous);
+        } while (!registry.compareAndSet(previous, next));
+        invalidateSuggestions();
+        Set<Command> reachable = next.reachableCommands();
+        for (Command command : previous.reachableCommands()) {
+            if (!reachable.contains(command)) {
+                commandInfoCache.invalidate(command);
             }
-        } finally {
-            lock.writeLock().unlock();
+        }
+        Set<Command> kept = Sets.newIdentityHashSet();
+        kept.addAll(next.allCommands());
+        return !kept.containsAll(previous.allCommands());
+    }
+
+    /**
+     * Cache the information computed while validating {@code roots}, now that
+     * they are registered.
+     */
+    private void cacheInfos(Collection<Command> roots, Map<Command, CommandInfo> infos) {
+        infos.forEach(commandInfoCache::putIfAbsent);
+        // an unregister may have raced with the registration, and already invalidated
+        RegistrySnapshot current = registry.get();
+        if (!roots.stream().allMatch(c -> current.commands.get(c.getName()) == c)) {
+            // anything still registered is cached again when next used
+            infos.keySet().forEach(commandInfoCache::invalidate);
         }
     }
 
-    private void validateAndCache(Command command, Set<Command> seen) {
+    /**
+     * Get the information for {@code command}, or {@code null} if it is not cached
+     * and no longer registered. That information is not cached again, so parses
+     * of removed commands can't put it back.
+     */
+    @Nullable
+    CommandInfo sharedCommandInfo(Command command) {
+        CommandInfo info = commandInfoCache.getIfPresent(command);
+        if (info != null) {
+            return info;
+        }
+        if (!registry.get().reachableCommands().contains(command)) {
+            return null;
+        }
+        info = commandInfoCache.putIfAbsent(command, CommandInfo.from(command));
+        if (!registry.get().reachableCommands().contains(command)) {
+            // lost a race with an unregister
+            commandInfoCache.invalidate(command);
+        }
+        return info;
+    }
+
+    /**
+     * Get the current registry. It will not change, even if more is registered.
+     */
+    RegistrySnapshot registrySnapshot() {
+        return registry.get();
+    }
+
+    private Map<Command, CommandInfo> validateAll(ImmutableList<Command> commands) {
+        // each tree is independent, so they can be checked in parallel
+        List<Map<Command, CommandInfo>> trees = commands.parallelStream()
+            .map(command -> {
+                Map<Command, CommandInfo> infos = new IdentityHashMap<>();
+                validate(command, new HashSet<>(), infos);
+                return infos;
+            })
+            .collect(Collectors.toList());
+        Map<Command, CommandInfo> infos = new IdentityHashMap<>();
+        trees.forEach(infos::putAll);
+        return infos;
+    }
+
+    private void validate(Command command, Set<Command> seen, Map<Command, CommandInfo> infos) {
         if (!seen.add(command)) {
             throw new IllegalStateException("Self-referential command");
         }
-        commandInfoCache.getInfo(command);
+        CommandInfo info = CommandInfo.from(command);
+        // bind the converters that are already registered, ahead of parsing
+        info.bindConverters(registry.get());
+        infos.put(command, info);
         // validate sub-commands too
         command.getParts().stream()
             .filter(p -> p instanceof SubCommandPart)
             .flatMap(p -> ((SubCommandPart) p).getCommands().stream())
-            .forEach(c -> validateAndCache(c, seen));
-    }
-
-    private void registerIfAvailable(String name, Command command) {
-        Command existing = commands.put(name, command);
-        if (existing != null) {
-            commands.put(name, existing);
-            throw new IllegalArgumentException("A command is already registered under "
-                + name + "; existing=" + existing + ",rejected=" + command);
-        }
+            .forEach(c -> validate(c, seen, infos));
     }
 
     @Override
     public <T> void registerConverter(Key<T> key, ArgumentConverter<T> converter) {
-        lock.writeLock().lock();
-        try {
-            converters.put(key, converter);
-        } finally {
-            lock.writeLock().unlock();
+        registry.updateAndGet(r -> r.withConverter(key, converter));
+        invalidateSuggestions();
+    }
+
+    private void invalidateSuggestions() {
+        SuggestionCache cache = suggestionCache;
+        if (cache != null) {
+            cache.invalidateAll();
         }
     }
 
     @Override
     public Set<Key<?>> keySet() {
-        lock.readLock().lock();
-        try {
-            return converters.keySet();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return registry.get().converters.keySet();
     }
 
     @Override
     public <T> Optional<ArgumentConverter<T>> getConverter(Key<T> key) {
         @SuppressWarnings("unchecked")
-        ArgumentConverter<T> converter = (ArgumentConverter<T>) getArgumentConverter(key);
+        ArgumentConverter<T> converter = (ArgumentConverter<T>) registry.get().converters.get(key);
         return Optional.ofNullable(converter);
     }
 
-    @Nullable
-    private <T> ArgumentConverter<?> getArgumentConverter(Key<T> key) {
-        lock.readLock().lock();
-        try {
-            return converters.get(key);
-        } finally {
-            lock.readLock().unlock();
-        }
-    }
-
     @Override
     public Stream<Command> getAllCommands() {
-        ImmutableSet<Command> allCommands;
-        lock.readLock().lock();
-        try {
-            allCommands = ImmutableSet.copyOf(commands.values());
-        } finally {
-            lock.readLock().unlock();
-        }
-        return allCommands.stream();
+        return registry.get().allCommands().stream();
     }
 
     @Override
     public Optional<Command> getCommand(String name) {
-        lock.readLock().lock();
-        try {
-            return Optional.ofNullable(commands.get(name));
-        } finally {
-            lock.readLock().unlock();
-        }
+        return Optional.ofNullable(registry.get().commands.get(name));
     }
 
     @Override
     public ImmutableSet<Suggestion> getSuggestions(InjectedValueAccess context, List<String> args) {
-        Command command;
-        CommandParseResult parseResult;
-        lock.readLock().lock();
-        try {
-            String name = args.get(0);
-            command = commands.get(name);
-            if (command == null) {
-                // suggest on commands instead
-                return suggestCommands(context, name);
-            }
-            // parse also locks -- re-entrant lock required for this
-            try {
-                parseResult = parse(context, args);
-            } catch (UsageException e) {
-                // perfect -- we have an input to suggest
-                parseResult = e.getCommandParseResult();
+        return findSuggestions(context, args, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Suggestions are found lazily, and no more are looked for once the limit is reached.
+     * </p>
+     */
+    @Override
+    public ImmutableSet<Suggestion> getSuggestions(InjectedValueAccess context, List<String> args, int limit) {
+        return findSuggestions(context, args, limit, null);
+    }
+
+    @Override
+    public ImmutableSet<Suggestion> getSuggestions(InjectedValueAccess context, List<String> args, int limit,
+                                                   Comparator<? super Suggestion> ranking) {
+        return findSuggestions(context, args, limit, checkNotNull(ranking));
+    }
+
+    private ImmutableSet<Suggestion> findSuggestions(InjectedValueAccess context, List<String> args, int limit,
+                                                     @Nullable Comparator<? super Suggestion> ranking) {
+        RegistrySnapshot snapshot = registry.get();
+        // ranked queries usually build their comparator for each call, so they would never hit
+        SuggestionCache cache = ranking == null ? suggestionCache : null;
+        SuggestionCache.Key key = null;
+        if (cache != null) {
+            key = cache.key(snapshot, context, args, limit);
+            ImmutableSet<Suggestion> cached = cache.get(key);
+            if (cached != null) {
+                return cached;
             }
-        } finally {
-            lock.readLock().unlock();
         }
+        String name = args.get(0);
+        Command command = snapshot.commands.get(name);
+        Stream<Suggestion> suggestions;
+        // command names only depend on the registry and conditions
+        boolean cacheable = true;
+        if (command == null) {
+            // suggest on commands instead
+            suggestions = suggestCommands(context, name, args);
+        } else {
+            ParseOutcome outcome = parseCommand(command, name, context, args, null);
+            cacheable = canCacheSuggestions(snapshot, command, outcome);
+            suggestions = suggest(command, args, outcome, ranking == null ? limit : Integer.MAX_VALUE);
+        }
+        ImmutableSet<Suggestion> result = collect(suggestions, limit, ranking);
+        if (cache != null && key != null && cacheable) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Check if the suggestions for {@code outcome} only come from the default suggester,
+     * and converters that allow caching.
+     */
+    private static boolean canCacheSuggestions(RegistrySnapshot snapshot, Command command, ParseOutcome outcome) {
+        Optional<CommandParseResult> result = outcome.getResult();
+        if (!result.isPresent() || command.getSuggester() != DefaultSuggestionProvider.getInstance()) {
+            return false;
+        }
+        ImmutableMap<Key<?>, ArgumentConverter<?>> converters = snapshot.converters;
+        return result.get().getExecutionPath().stream()
+            .flatMap(c -> c.getParts().stream())
+            .filter(p -> p instanceof ArgAcceptingCommandPart)
+            .flatMap(p -> ((ArgAcceptingCommandPart) p).getTypes().stream())
+            .map(converters::get)
+            .allMatch(c -> c == null || c.canCacheSuggestions());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The suggestions are not cached.
+     * </p>
+     */
+    @Override
+    public CompletableFuture<ImmutableSet<Suggestion>> getSuggestionsAsync(InjectedValueAccess context,
+                                                                         List<String> args, int limit,
+                                                                         Duration timeout, Executor executor) {
+        String name = args.get(0);
+        Command command = registry.get().commands.get(name);
+        if (command == null) {
+            return CompletableFuture.completedFuture(collect(suggestCommands(context, name, args), limit, null));
+        }
+        ParseOutcome outcome = parseCommand(command, name, context, args, null);
+        if (!outcome.getResult().isPresent()) {
+            return CompletableFuture.failedFuture(outcome.getFailure());
+        }
+        return command.getSuggester()
+            .provideSuggestionsAsync(args.subList(1, args.size()), outcome.getResult().get(), limit, timeout,
+                executor)
+            .thenApply(suggestions -> collect(suggestions.stream()
+                .map(s -> withOffsets(s.toBuilder(), s.getReplacedArgument() + 1, args)), limit, null));
+    }
+
+    /**
+     * Collect the first {@code limit} distinct suggestions, or the best {@code limit}
+     * if there is a ranking.
+     */
+    static ImmutableSet<Suggestion> collect(Stream<Suggestion> suggestions, int limit,
+                                            @Nullable Comparator<? super Suggestion> ranking) {
+        if (ranking == null) {
+            return suggestions.distinct().limit(limit).collect(ImmutableSet.toImmutableSet());
+        }
+        return ImmutableSet.copyOf(suggestions.distinct().collect(Comparators.least(limit, ranking)));
+    }
+
+    @Override
+    public SuggestionSession newSuggestionSession(InjectedValueAccess context) {
+        return new SuggestionSessionImpl(this, MemoizingValueAccess.wrap(context));
+    }
+
+    /**
+     * Ask {@code command} for suggestions, given the outcome of parsing {@code args}.
+     *
+     * @param limit how many distinct suggestions will be used
+     */
+    Stream<Suggestion> suggest(Command command, List<String> args, ParseOutcome outcome, int limit) {
+        // partial results are perfect -- we have an input to suggest
+        CommandParseResult parseResult = outcome.getResult().orElseThrow(outcome::getFailure);
         List<String> reconstructedArguments = parseResult.getOriginalArguments();
         // This makes no sense. Throw this case away.
         checkState(reconstructedArguments.size() <= args.size(),
             "Reconstructed arguments list bigger than original args list");
         // And ask the command to suggest. In most cases this uses the default suggester.
-        return ImmutableSet.copyOf(command.getSuggester().provideSuggestions(args.subList(1, args.size()), parseResult)
-            .stream()
-            .map(s -> s.toBuilder().replacedArgument(s.getReplacedArgument() + 1).build())
-            .iterator());
-    }
-
-    private ImmutableSet<Suggestion> suggestCommands(InjectedValueAccess context, String name) {
-        Predicate<String> nameFilter = byPrefix(name);
-        return ImmutableSet.copyOf(
-            getAllCommands()
-                .filter(c -> nameFilter.test(c.getName()) && c.getCondition().satisfied(context))
-                .map(Command::getName)
-                .map(s -> Suggestion.builder()
-                    .suggestion(s)
-                    .replacedArgument(0)
-                    .build())
-                .iterator()
-        );
+        return command.getSuggester().streamSuggestions(args.subList(1, args.size()), parseResult, limit)
+            .map(s -> withOffsets(s.toBuilder(), s.getReplacedArgument() + 1, args));
+    }
+
+    /**
+     * Build the suggestion, replacing argument {@code replaced} of {@code args},
+     * with its offsets if {@code args} is a tokenized line.
+     */
+    private static Suggestion withOffsets(Suggestion.Builder suggestion, int replaced, List<String> args) {
+        suggestion.replacedArgument(replaced);
+        if (args instanceof TokenizedLine) {
+            TokenizedLine line = (TokenizedLine) args;
+            if (replaced < line.size()) {
+                suggestion.startOffset(line.getStartOffset(replaced))
+                    .endOffset(line.getEndOffset(replaced));
+            } else {
+                // appending a new argument
+                int end = line.getLine().length();
+                suggestion.startOffset(end).endOffset(end);
+            }
+        }
+        return suggestion.build();
+    }
+
+    Stream<Suggestion> suggestCommands(InjectedValueAccess context, String name, List<String> args) {
+        return commandsByPrefix(registry.get().commandIndex(), name)
+            .filter(c -> c.getCondition().satisfied(context))
+            .map(c -> withOffsets(Suggestion.builder().suggestion(c.getName()), 0, args));
     }
 
     @Override
     public CommandParseResult parse(InjectedValueAccess context, List<String> args) {
-        lock.readLock().lock();
+        return tryParse(context, args).getResultOrThrow();
+    }
+
+    @Override
+    public ParseOutcome tryParse(InjectedValueAccess context, List<String> args) {
+        return tryParse(null, context, args);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The batch uses the registry as of the start of the batch, and each
+     * condition is only tested once.
+     * </p>
+     */
+    @Override
+    public ImmutableList<ParseOutcome> parseBatch(InjectedValueAccess context,
+                                                  List<? extends List<String>> lines) {
+        ParseBatch batch = new ParseBatch(registry.get(), context);
+        return lines.stream()
+            .map(line -> tryParseLine(batch, line))
+            .collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The batch uses the registry as of the start of the batch, and each
+     * condition is only tested once.
+     * </p>
+     */
+    @Override
+    public ImmutableList<ExecutionResult> executeBatch(InjectedValueAccess context,
+                                                       List<? extends List<String>> lines) {
+        ParseBatch batch = new ParseBatch(registry.get(), context);
+        ImmutableList.Builder<ExecutionResult> results = ImmutableList.builderWithExpectedSize(lines.size());
+        for (List<String> line : lines) {
+            results.add(ExecutionResult.execute(tryParseLine(batch, line)));
+        }
+        return results.build();
+    }
+
+    /**
+     * Parse one line of a batch, failing only that line if something other
+     * than a {@link CommandException} is thrown, such as by a broken converter.
+     */
+    private ParseOutcome tryParseLine(ParseBatch batch, List<String> line) {
         try {
-            String name = args.get(0);
-            Command command = commands.get(name);
-            if (command == null) {
-                throw new NoSuchCommandException(name);
-            }
-            // cache if needed
-            InjectedValueAccess cachedContext = MemoizingValueAccess.wrap(context);
-            CommandMetadata metadata = CommandMetadataImpl.builder()
-                .calledName(name)
-                .arguments(ImmutableList.copyOf(args.subList(1, args.size())))
-                .build();
-            return new CommandParser(
-                this, commandInfoCache, command, metadata, cachedContext
-            ).parse();
-        } finally {
-            lock.readLock().unlock();
+            return tryParse(batch, batch.context, line);
+        } catch (CommandException e) {
+            return ParseOutcome.failed(null, () -> e);
+        } catch (RuntimeException e) {
+            return ParseOutcome.failed(null, () -> new CommandException(e, ImmutableList.of()));
+        }
+    }
+
+    private ParseOutcome tryParse(@Nullable ParseBatch batch, InjectedValueAccess context, List<String> args) {
+        String name = args.get(0);
+        RegistrySnapshot snapshot = batch == null ? registry.get() : batch.registry;
+        Command command = snapshot.commands.get(name);
+        if (command == null) {
+            return ParseOutcome.failed(null, () -> new NoSuchCommandException(name));
         }
+        return parseCommand(command, name, context, args, batch);
+    }
+
+    private ParseOutcome parseCommand(Command command, String name, InjectedValueAccess context, List<String> args,
+                                      @Nullable ParseBatch batch) {
+        // cache if needed
+        InjectedValueAccess cachedContext = MemoizingValueAccess.wrap(context);
+        return newParser(command, newMetadata(name, args), cachedContext, false, batch).parse();
+    }
+
+    CommandMetadataImpl newMetadata(String name, List<String> args) {
+        boolean immutable = args instanceof ImmutableList || args instanceof TokenizedLine;
+        List<String> arguments = args.subList(1, args.size());
+        return CommandMetadataImpl.builder()
+            .calledName(name)
+            // immutable lists can't change after parsing, so they are only copied if needed
+            .rawArguments(immutable ? arguments : ImmutableList.copyOf(arguments))
+            .line(args instanceof TokenizedLine ? (TokenizedLine) args : null)
+            .build();
+    }
+
+    CommandParser newParser(Command command, CommandMetadataImpl metadata, InjectedValueAccess context,
+                            boolean keepCheckpoints, @Nullable ParseBatch batch) {
+        return new CommandParser(
+            this, command, metadata, context, parseTracer,
+            !stacklessExceptions, keepCheckpoints, batch
+        );
     }
 
 }
@@ -20,10 +20,13 @@
 package org.enginehub.piston.impl;
 
 import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
 import org.enginehub.piston.CommandMetadata;
+import org.enginehub.piston.tokenizer.TokenizedLine;
 
-import java.util.Collection;
+import javax.annotation.Nullable;
+import java.util.List;
 
 @AutoValue
 abstract class CommandMetadataImpl implements CommandMetadata {
@@ -37,7 +40,12 @@ abstract class CommandMetadataImpl implements CommandMetadata {
 
         Builder calledName(String name);
 
-        Builder arguments(Collection<String> args);
+        /**
+         * Set the arguments. They must not change after this call.
+         */
+        Builder rawArguments(List<String> args);
+
+        Builder line(@Nullable TokenizedLine line);
 
         CommandMetadataImpl build();
     }
@@ -48,6 +56,17 @@ abstract class CommandMetadataImpl implements CommandMetadata {
     @Override
     public abstract String getCalledName();
 
+    abstract List<String> rawArguments();
+
+    /**
+     * The line the arguments came from, if it was tokenized by Piston.
+     */
+    @Nullable
+    abstract TokenizedLine line();
+
+    @Memoized
     @Override
-    public abstract ImmutableList<String> getArguments();
+    public ImmutableList<String> getArguments() {
+        return ImmutableList.copyOf(rawArguments());
+    }
 }
@@ -20,8 +20,8 @@
 package org.enginehub.piston.impl;
 
 import com.google.auto.value.AutoValue;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableList;
+import org.enginehub.piston.Command;
 import org.enginehub.piston.CommandMetadata;
 import org.enginehub.piston.CommandParameters;
 import org.enginehub.piston.CommandValue;
@@ -31,9 +31,23 @@ import org.enginehub.piston.inject.Key;
 import org.enginehub.piston.part.ArgAcceptingCommandPart;
 import org.enginehub.piston.part.CommandPart;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 
+/**
+ * Parameters for a parse. Every part of every command in the execution path
+ * has a <em>slot</em>: the command's offset in the path, plus the part's
+ * ordinal in the command. Presence and values are stored by slot.
+ *
+ * <p>
+ * Parts are found by identity, so they must be the instances the commands
+ * were built with. Equality is over the commands in the path, compared by
+ * identity, and the slots, so it does not depend on cached information.
+ * </p>
+ */
 @AutoValue
 abstract class CommandParametersImpl implements CommandParameters {
 
@@ -44,19 +58,13 @@ abstract class CommandParametersImpl implements CommandParameters {
     @AutoValue.Builder
     interface Builder {
 
-        default Builder addPresentPart(CommandPart part) {
-            presentPartsBuilder().add(part);
-            return this;
-        }
+        Builder commands(ImmutableList<Command> commands);
 
-        ImmutableSet.Builder<CommandPart> presentPartsBuilder();
+        Builder path(ImmutableList<CommandInfo> path);
 
-        default Builder addValue(CommandPart part, CommandValue value) {
-            valuesBuilder().put(part, value);
-            return this;
-        }
+        Builder presentSlots(BitSet presentSlots);
 
-        ImmutableMap.Builder<CommandPart, CommandValue> valuesBuilder();
+        Builder values(CommandValue[] values);
 
         Builder injectedValues(InjectedValueAccess values);
 
@@ -70,9 +78,27 @@ abstract class CommandParametersImpl implements CommandParameters {
     CommandParametersImpl() {
     }
 
-    abstract ImmutableSet<CommandPart> presentParts();
+    /**
+     * The commands in the execution path.
+     */
+    abstract ImmutableList<Command> commands();
+
+    /**
+     * The info of each command in the execution path. It is not part of
+     * {@link #equals(Object)}.
+     */
+    abstract ImmutableList<CommandInfo> path();
 
-    abstract ImmutableMap<CommandPart, CommandValue> values();
+    /**
+     * Do not modify.
+     */
+    abstract BitSet presentSlots();
+
+    /**
+     * Values by slot, {@code null} where there is none. Do not modify.
+     */
+    @SuppressWarnings("mutable")
+    abstract CommandValue[] values();
 
     abstract InjectedValueAccess injectedValues();
 
@@ -80,14 +106,67 @@ abstract class CommandParametersImpl implements CommandParameters {
 
     abstract ArgumentConverterAccess converters();
 
+    /**
+     * Get the slot of {@code part}, or {@code -1} if it is not in the path.
+     */
+    private int slot(CommandPart part) {
+        int base = 0;
+        for (CommandInfo info : path()) {
+            int ordinal = info.ordinalOf(part);
+            if (ordinal >= 0) {
+                return base + ordinal;
+            }
+            base += info.parts.size();
+        }
+        return -1;
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CommandParametersImpl)) {
+            return false;
+        }
+        CommandParametersImpl that = (CommandParametersImpl) o;
+        ImmutableList<Command> commands = commands();
+        ImmutableList<Command> thatCommands = that.commands();
+        if (commands.size() != thatCommands.size()) {
+            return false;
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            if (commands.get(i) != thatCommands.get(i)) {
+                return false;
+            }
+        }
+        return presentSlots().equals(that.presentSlots())
+            && Arrays.equals(values(), that.values())
+            && injectedValues().equals(that.injectedValues())
+            && metadata().equals(that.metadata())
+            && converters().equals(that.converters());
+    }
+
+    @Override
+    public final int hashCode() {
+        int commandsHash = 1;
+        for (Command command : commands()) {
+            commandsHash = 31 * commandsHash + System.identityHashCode(command);
+        }
+        return Objects.hash(commandsHash, presentSlots(), Arrays.hashCode(values()), injectedValues(), metadata(),
+            converters());
+    }
+
     @Override
     public final boolean has(CommandPart part) {
-        return presentParts().contains(part);
+        int slot = slot(part);
+        return slot >= 0 && presentSlots().get(slot);
     }
 
     @Override
     public final CommandValue valueOf(ArgAcceptingCommandPart part) {
-        CommandValue value = values().get(part);
+        int slot = slot(part);
+        CommandValue value = slot >= 0 ? values()[slot] : null;
         if (value == null) {
             throw new NoSuchElementException("No value for " + part);
         }
@@ -20,11 +20,16 @@
 package org.enginehub.piston.impl;
 
 import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
 import org.enginehub.piston.ArgBinding;
 import org.enginehub.piston.Command;
 import org.enginehub.piston.CommandParameters;
 import org.enginehub.piston.CommandParseResult;
+import org.enginehub.piston.tokenizer.TokenizedLine;
+
+import javax.annotation.Nullable;
+import java.util.List;
 
 @AutoValue
 abstract class CommandParseResultImpl implements CommandParseResult {
@@ -36,21 +41,13 @@ abstract class CommandParseResultImpl implements CommandParseResult {
     @AutoValue.Builder
     abstract static class Builder {
 
-        public final Builder addCommand(Command command) {
-            executionPathBuilder().add(command);
-            return this;
-        }
-
-        abstract ImmutableList.Builder<Command> executionPathBuilder();
+        public abstract Builder executionPath(ImmutableList<Command> executionPath);
 
-        public abstract ImmutableList<Command> getExecutionPath();
+        public abstract Builder arguments(List<String> arguments);
 
-        public final Builder addArgument(ArgBinding argBinding) {
-            boundArgumentsBuilder().add(argBinding);
-            return this;
-        }
+        public abstract Builder line(@Nullable TokenizedLine line);
 
-        abstract ImmutableList.Builder<ArgBinding> boundArgumentsBuilder();
+        public abstract Builder bindings(BindingTable bindings);
 
         public abstract Builder parameters(CommandParameters parameters);
 
@@ -63,8 +60,45 @@ abstract class CommandParseResultImpl implements CommandParseResult {
     @Override
     public abstract ImmutableList<Command> getExecutionPath();
 
+    /**
+     * All the arguments given to the command, bound or not.
+     */
+    abstract List<String> arguments();
+
+    /**
+     * The line the command came from, if it was tokenized by Piston.
+     * The arguments start at token {@code 1}.
+     */
+    @Nullable
+    abstract TokenizedLine line();
+
+    abstract BindingTable bindings();
+
+    @Memoized
+    @Override
+    public ImmutableList<ArgBinding> getBoundArguments() {
+        BindingTable bindings = bindings();
+        TokenizedLine line = line();
+        ImmutableList.Builder<ArgBinding> boundArguments = ImmutableList.builder();
+        int entry = 0;
+        for (int argument = 0; argument < bindings.boundArguments(); argument++) {
+            int firstEntry = entry;
+            while (entry < bindings.size() && bindings.argument(entry) == argument) {
+                entry++;
+            }
+            boundArguments.add(new ArgBindingImpl(
+                arguments().get(argument), bindings, getExecutionPath(), firstEntry, entry,
+                line == null ? -1 : line.getStartOffset(argument + 1),
+                line == null ? -1 : line.getEndOffset(argument + 1)
+            ));
+        }
+        return boundArguments.build();
+    }
+
     @Override
-    public abstract ImmutableList<ArgBinding> getBoundArguments();
+    public List<String> getOriginalArguments() {
+        return arguments().subList(0, bindings().boundArguments());
+    }
 
     @Override
     public abstract CommandParameters getParameters();
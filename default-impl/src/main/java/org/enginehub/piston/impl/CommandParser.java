@@ -25,33 +25,33 @@ import static java.util.Objects.requireNonNull;
 
 
 import javax.annotation.Nullable;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.ListIterator;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterators;
+import com.google.common.collect.Iterables;
 import net.kyori.text.Component;
 import net.kyori.text.TextComponent;
-import org.apache.logging.log4j.Logger;
 import org.enginehub.piston.Command;
-import org.enginehub.piston.CommandMetadata;
 import org.enginehub.piston.CommandParseResult;
+import org.enginehub.piston.CommandValue;
+import org.enginehub.piston.ParseOutcome;
 import org.enginehub.piston.config.ColorConfig;
 import org.enginehub.piston.converter.ArgumentConverter;
-import org.enginehub.piston.converter.ArgumentConverterAccess;
 import org.enginehub.piston.converter.ConversionResult;
 import org.enginehub.piston.converter.FailedConversion;
 import org.enginehub.piston.converter.SuccessfulConversion;
+import org.enginehub.piston.exception.CommandException;
 import org.enginehub.piston.exception.ConditionFailedException;
 import org.enginehub.piston.exception.ConversionFailedException;
 import org.enginehub.piston.exception.NoSuchFlagException;
@@ -67,92 +67,219 @@ import org.enginehub.piston.part.CommandPart;
 import org.enginehub.piston.part.NoArgCommandFlag;
 import org.enginehub.piston.part.SubCommandPart;
 import org.enginehub.piston.util.ComponentHelper;
-import org.enginehub.piston.util.StreamHelper;
+import org.enginehub.piston.util.FuzzyIndex;
 
 class CommandParser {
 
-    private static final Logger LOGGER = LogManagerCompat.getLogger();
-
-    private static final ThreadLocal<String> PARSE_ID = new ThreadLocal<>();
-
-    private static void log(String message, Object... args) {
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("[" + PARSE_ID.get() + "]: " + message, args);
-        }
-    }
-
-    private static String newId() {
-        long rng = ThreadLocalRandom.current().nextLong(0, Long.MAX_VALUE);
-        return Strings.padStart(Long.toString(rng, 36), 13, '0');
-    }
-
-    private static void logParseStart() {
-        PARSE_ID.set(newId());
-        log("started parsing");
-    }
+    private static final int MAX_CLOSE_SUB_COMMANDS = 3;
 
     private static final class PerCommandDetails {
 
         final CommandInfo commandInfo;
-        final Set<ArgAcceptingCommandPart> defaultsNeeded;
-        final Set<ArgAcceptingCommandFlag> argFlagsNeeded;
-        final ListIterator<ArgConsumingCommandPart> partIter;
+        /**
+         * The slot of this command's first part in the parameters.
+         */
+        final int slotBase;
+        /**
+         * Ordinals of parts that still need their defaults filled in.
+         */
+        final BitSet defaultsNeeded;
+        /**
+         * Ordinals of argument flags that still need a {@code null} value.
+         */
+        final BitSet argFlagsNeeded;
+        /**
+         * Ordinals of flags that have already been specified.
+         */
+        final BitSet seenFlags;
+        /**
+         * Index of the next part to try in {@link CommandInfo#arguments}.
+         */
+        int partIndex;
         boolean canMatchFlags = true;
         int remainingRequiredParts;
-
-        private PerCommandDetails(CommandInfo commandInfo) {
+        /**
+         * The count of non-flag arguments at and after each index, while flags
+         * can be matched. Computed on first use.
+         */
+        @Nullable
+        int[] nonFlagSuffixCounts;
+
+        private PerCommandDetails(CommandInfo commandInfo, int slotBase) {
             this.commandInfo = commandInfo;
-            this.defaultsNeeded = new HashSet<>(commandInfo.defaultProvided);
-            // collect argument flags that don't have default values
-            // we'll provide `null` for them in this case.
-            this.argFlagsNeeded = StreamHelper.cast(
-                commandInfo.flags.values().stream(),
-                ArgAcceptingCommandFlag.class
-            )
-                .filter(arg -> !defaultsNeeded.contains(arg))
-                .collect(Collectors.toCollection(HashSet::new));
-            this.partIter = commandInfo.arguments.listIterator();
+            this.slotBase = slotBase;
+            this.defaultsNeeded = commandInfo.newDefaultsNeeded();
+            this.argFlagsNeeded = commandInfo.newArgFlagsNeeded();
+            this.seenFlags = new BitSet(commandInfo.parts.size());
             this.remainingRequiredParts = commandInfo.requiredParts;
         }
+
+        private PerCommandDetails(PerCommandDetails other) {
+            this.commandInfo = other.commandInfo;
+            this.slotBase = other.slotBase;
+            this.defaultsNeeded = (BitSet) other.defaultsNeeded.clone();
+            this.argFlagsNeeded = (BitSet) other.argFlagsNeeded.clone();
+            this.seenFlags = (BitSet) other.seenFlags.clone();
+            this.partIndex = other.partIndex;
+            this.canMatchFlags = other.canMatchFlags;
+            this.remainingRequiredParts = other.remainingRequiredParts;
+            // depends on the arguments, which may change before it is used
+            this.nonFlagSuffixCounts = null;
+        }
+    }
+
+    /**
+     * The parser state before an argument was consumed. Everything the parser
+     * collects is append-only, so only the sizes need to be kept.
+     */
+    private static final class Checkpoint {
+
+        final int argIndex;
+        final int pathIndex;
+        final int bindingsSize;
+        final int boundArguments;
+        final int presentSlotsSize;
+        final int valuesSize;
+        final PerCommandDetails details;
+        final boolean justUnconsumed;
+        @Nullable
+        final CommandArgument lastFailedOptional;
+
+        private Checkpoint(CommandParser parser) {
+            this.argIndex = parser.argIndex;
+            this.pathIndex = parser.pathIndex;
+            this.bindingsSize = parser.bindings.size();
+            this.boundArguments = parser.bindings.boundArguments();
+            this.presentSlotsSize = parser.presentSlots.size();
+            this.valuesSize = parser.values.size();
+            this.details = new PerCommandDetails(parser.perCommandDetails());
+            this.justUnconsumed = parser.justUnconsumed;
+            this.lastFailedOptional = parser.lastFailedOptional;
+        }
+
+        /**
+         * The number of arguments that must be unchanged to resume from here.
+         * An argument that was unconsumed was still looked at.
+         */
+        int dependsOnArguments() {
+            return justUnconsumed ? argIndex + 1 : argIndex;
+        }
     }
 
-    private final ArgumentConverterAccess converters;
-    private final CommandMetadata metadata;
-    private final CommandParseResultImpl.Builder parseResult = CommandParseResultImpl.builder();
-    private final CommandParametersImpl.Builder parameters = CommandParametersImpl.builder();
-    private final CommandInfoCache commandInfoCache;
-    private final ImmutableList<String> arguments;
-    private final ListIterator<String> argIter;
+    private final CommandManagerImpl converters;
+    /**
+     * The registry as of the start of this parse run.
+     */
+    private RegistrySnapshot registry;
+    private CommandMetadataImpl metadata;
+    private final List<Command> executionPath = new ArrayList<>();
+    /**
+     * The info of each command in {@link #executionPath}.
+     */
+    private final List<CommandInfo> infoPath = new ArrayList<>();
+    /**
+     * Slots of present parts, see {@link CommandParametersImpl}.
+     */
+    private final List<Integer> presentSlots = new ArrayList<>();
+    private final List<Integer> valueSlots = new ArrayList<>();
+    private final List<CommandValue> values = new ArrayList<>();
+    private final ParseTracer tracer;
+    /**
+     * If converters should be timed for the tracer.
+     */
+    private final boolean timeConverters;
+    /**
+     * If exceptions for bad input should have stack traces.
+     */
+    private final boolean writableStackTraces;
+    private final Command initial;
+    private List<String> arguments;
+    /**
+     * Index of the next argument to consume.
+     */
+    private int argIndex;
     private final InjectedValueAccess context;
-    private final Set<CommandFlag> seenFlags = new HashSet<>();
-    private ImmutableMap.Builder<CommandPart, Boolean> argBindings = ImmutableMap.builder();
+    private final BindingTable bindings = new BindingTable();
+    /**
+     * Index of the current command in the execution path.
+     */
+    private int pathIndex = -1;
     @Nullable
     private PerCommandDetails perCommandDetails;
+    /**
+     * The successful conversions from the last type check, by key.
+     */
+    private ImmutableMap<Key<?>, ParsedConversion> lastConversions = ImmutableMap.of();
     @Nullable
     private CommandArgument lastFailedOptional;
     @Nullable
     private CommandParseResult result;
     private boolean justUnconsumed;
+    /**
+     * Checkpoints at each argument boundary, oldest first, if they are being kept.
+     */
+    @Nullable
+    private final List<Checkpoint> checkpoints;
+    /**
+     * If the count of remaining arguments was used. Later decisions depend on
+     * every argument, so no checkpoints are made after this.
+     */
+    private boolean usedLookahead;
+    /**
+     * The batch this parse is part of, if any.
+     */
+    @Nullable
+    private final ParseBatch batch;
+    /**
+     * Information for commands that were removed from the registry, which
+     * is kept for this parse only.
+     */
+    @Nullable
+    private Map<Command, CommandInfo> localInfos;
 
-    CommandParser(ArgumentConverterAccess converters, CommandInfoCache commandInfoCache, Command initial,
-                  CommandMetadata metadata, InjectedValueAccess context) {
-        this.commandInfoCache = commandInfoCache;
+    CommandParser(CommandManagerImpl converters, Command initial,
+                  CommandMetadataImpl metadata, InjectedValueAccess context, ParseTracer tracer,
+                  boolean writableStackTraces, boolean keepCheckpoints, @Nullable ParseBatch batch) {
         this.converters = converters;
+        this.registry = batch == null ? converters.registrySnapshot() : batch.registry;
+        this.initial = initial;
         this.metadata = metadata;
-        this.arguments = metadata.getArguments();
-        this.argIter = this.arguments.listIterator();
+        this.arguments = metadata.rawArguments();
         this.context = context;
-        switchToCommand(initial);
+        this.tracer = tracer;
+        this.timeConverters = tracer != ParseTracer.noOp();
+        this.writableStackTraces = writableStackTraces;
+        this.checkpoints = keepCheckpoints ? new ArrayList<>() : null;
+        this.batch = batch;
     }
 
     private void buildParseResult() {
         checkState(result == null, "Multiple calls to build final result");
-        if (argBindings.build().size() > 0 && argIter.hasPrevious()) {
+        if (argIndex > 0 && bindings.hasEntries(argIndex - 1)) {
             bindArgument();
         }
         fillInDefaults();
-        result = parseResult
-            .parameters(parameters
+        PerCommandDetails last = perCommandDetails();
+        int slotCount = last.slotBase + last.commandInfo.parts.size();
+        BitSet presentSlotSet = new BitSet(slotCount);
+        for (int slot : presentSlots) {
+            presentSlotSet.set(slot);
+        }
+        CommandValue[] valueArray = new CommandValue[slotCount];
+        for (int i = 0; i < values.size(); i++) {
+            valueArray[valueSlots.get(i)] = values.get(i);
+        }
+        ImmutableList<Command> path = ImmutableList.copyOf(executionPath);
+        result = CommandParseResultImpl.builder()
+            .executionPath(path)
+            .arguments(arguments)
+            .line(metadata.line())
+            .bindings(bindings.copy())
+            .parameters(CommandParametersImpl.builder()
+                .commands(path)
+                .path(ImmutableList.copyOf(infoPath))
+                .presentSlots(presentSlotSet)
+                .values(valueArray)
                 .metadata(metadata)
                 .injectedValues(context)
                 .converters(converters)
@@ -164,38 +291,85 @@ class CommandParser {
         return checkNotNull(result, "Not finished parsing");
     }
 
-    private UsageException usageException(Component message) {
+    /**
+     * Thrown inside the parser to stop parsing. It has no stack trace, and the
+     * real exception is only created if the outcome's failure is asked for.
+     */
+    private static final class ParseFailure extends RuntimeException {
+
+        private final ParseOutcome outcome;
+
+        ParseFailure(ParseOutcome outcome) {
+            super(null, null, false, false);
+            this.outcome = outcome;
+        }
+    }
+
+    private ParseFailure failure(boolean incomplete, Function<CommandParseResult, CommandException> exception) {
         buildParseResult();
-        return new UsageException(message, getResult());
+        CommandParseResult partialResult = getResult();
+        Supplier<CommandException> failure = () -> exception.apply(partialResult);
+        return new ParseFailure(incomplete
+            ? ParseOutcome.incomplete(partialResult, failure)
+            : ParseOutcome.failed(partialResult, failure));
     }
 
-    private UsageException notEnoughArgumentsException() {
-        return usageException(TextComponent.of("Not enough arguments."));
+    private ParseFailure usageFailure(Supplier<? extends Component> message) {
+        return failure(false, result -> usageException(message.get(), result));
     }
 
-    private UsageException tooManyArgumentsException() {
-        return usageException(TextComponent.of("Too many arguments."));
+    /**
+     * Only use the stackless constructors when asked to, as their cause can't be set later.
+     */
+    private UsageException usageException(Component message, CommandParseResult result) {
+        return writableStackTraces
+            ? new UsageException(message, result)
+            : new UsageException(message, result, false);
     }
 
-    private ConversionFailedException conversionFailedException(ArgAcceptingCommandPart nextArg, String token) {
-        // TODO: Make this print all converters
-        ArgumentConverter<?> converter = nextArg.getTypes().stream()
-            .map(k -> converters.getConverter(k).orElse(null))
-            .filter(Objects::nonNull)
-            .findFirst().orElseThrow(IllegalStateException::new);
-        buildParseResult();
-        return new ConversionFailedException(getResult(),
-            nextArg.getTextRepresentation(),
-            converter,
-            (FailedConversion<?>) converter.convert(token, context));
+    /**
+     * A failure caused by the input ending before the command is complete.
+     */
+    private ParseFailure incompleteFailure(Supplier<? extends Component> message) {
+        return failure(true, result -> usageException(message.get(), result));
+    }
+
+    private ParseFailure notEnoughArguments() {
+        return incompleteFailure(() -> TextComponent.of("Not enough arguments."));
+    }
+
+    private ParseFailure tooManyArguments() {
+        return usageFailure(() -> TextComponent.of("Too many arguments."));
+    }
+
+    private ParseFailure conversionFailure(ArgAcceptingCommandPart nextArg, String token) {
+        return failure(false, result -> {
+            // TODO: Make this print all converters
+            ArgumentConverter<?> converter = nextArg.getTypes().stream()
+                .<ArgumentConverter<?>>map(registry.converters::get)
+                .filter(Objects::nonNull)
+                .findFirst().orElseThrow(IllegalStateException::new);
+            FailedConversion<?> conversion = (FailedConversion<?>) converter.convert(token, context);
+            return writableStackTraces
+                ? new ConversionFailedException(result, nextArg.getTextRepresentation(), converter, conversion)
+                : new ConversionFailedException(result, nextArg.getTextRepresentation(), converter, conversion,
+                    false);
+        });
     }
 
-    private ConditionFailedException conditionFailed() {
+    private ParseFailure conditionFailure() {
         buildParseResult();
-        return new ConditionFailedException(getResult().getExecutionPath());
+        ImmutableList<Command> executionPath = getResult().getExecutionPath();
+        // no partial result, as it may leak information about the command
+        return new ParseFailure(ParseOutcome.failed(null, () -> writableStackTraces
+            ? new ConditionFailedException(executionPath)
+            : new ConditionFailedException(executionPath, false)));
     }
 
     private boolean testCondition(Command.Condition condition) {
+        if (batch != null) {
+            return batch.testCondition(condition);
+        }
         return condition.satisfied(context);
     }
 
@@ -204,15 +378,14 @@ class CommandParser {
     }
 
     private String currentArgument() {
-        int argumentIndex = argIter.previousIndex();
-        if (argumentIndex < 0) {
+        if (argIndex == 0) {
             throw new IllegalStateException("No argument has been asked for yet");
         }
-        return arguments.get(argumentIndex);
+        return arguments.get(argIndex - 1);
     }
 
     private boolean hasNextArgument() {
-        return argIter.hasNext();
+        return argIndex < arguments.size();
     }
 
     private String nextArgument() {
@@ -220,99 +393,144 @@ class CommandParser {
             "No next argument present, this call should be guarded with hasNextArgument");
         // don't try to re-bind the last argument if we have already done it,
         // and reversed with unconsumeArgument
-        if (argIter.hasPrevious() && !justUnconsumed) {
+        if (argIndex > 0 && !justUnconsumed) {
             bindArgument();
         }
         justUnconsumed = false;
-        String next = argIter.next();
-        argBindings = ImmutableMap.builder();
+        String next = arguments.get(argIndex);
+        tracer.tokenConsumed(argIndex, next);
+        argIndex++;
         return next;
     }
 
     private void bindArgument() {
-        ImmutableMap<CommandPart, Boolean> binding = argBindings.build();
-        checkState(!binding.isEmpty() || currentArgument().equals("--"),
+        checkState(bindings.hasEntries(argIndex - 1) || currentArgument().equals("--"),
             "Argument never bound: %s", currentArgument());
-        parseResult.addArgument(ArgBindingImpl.builder()
-            .input(currentArgument())
-            .partsMap(binding)
-            .build());
+        bindings.completeArgument(argIndex - 1);
     }
 
     private void unconsumeArgument() {
-        checkState(argBindings.build().isEmpty(),
+        checkState(!bindings.hasEntries(argIndex - 1),
             "Argument already bound: %s", currentArgument());
-        checkState(argIter.hasPrevious(),
+        checkState(argIndex > 0,
             "Trying to unconsume nothing");
-        argIter.previous();
+        argIndex--;
         justUnconsumed = true;
     }
 
     private int remainingNonFlagArguments() {
-        return (int) arguments.stream()
-            .skip(argIter.previousIndex())
-            .filter(s -> !isFlag(s))
-            .count();
+        usedLookahead = true;
+        PerCommandDetails details = perCommandDetails();
+        int from = argIndex - 1;
+        if (!details.canMatchFlags) {
+            // `--` was seen, nothing after it is a flag
+            return arguments.size() - from;
+        }
+        if (details.nonFlagSuffixCounts == null) {
+            int[] counts = new int[arguments.size() + 1];
+            for (int i = arguments.size() - 1; i >= 0; i--) {
+                counts[i] = counts[i + 1] + (isFlag(arguments.get(i)) ? 0 : 1);
+            }
+            details.nonFlagSuffixCounts = counts;
+        }
+        return details.nonFlagSuffixCounts[from];
     }
 
     private boolean hasNextPart() {
-        return perCommandDetails().partIter.hasNext();
+        PerCommandDetails details = perCommandDetails();
+        return details.partIndex < details.commandInfo.arguments.size();
     }
 
     private ArgConsumingCommandPart nextPart() {
         checkState(hasNextPart(),
             "No next part, this call should be guarded with hasNextPart()");
-        return perCommandDetails().partIter.next();
+        PerCommandDetails details = perCommandDetails();
+        return details.commandInfo.arguments.get(details.partIndex++);
     }
 
-    private void unconsumePart() {
-        ListIterator<ArgConsumingCommandPart> partIter = perCommandDetails().partIter;
-        checkState(partIter.hasPrevious(),
-            "Trying to unconsume nothing");
-        partIter.previous();
+    /**
+     * Get the ordinal of the part last returned by {@link #nextPart()}.
+     */
+    private int currentPartOrdinal() {
+        PerCommandDetails details = perCommandDetails();
+        return details.commandInfo.argumentOrdinal(details.partIndex - 1);
     }
 
-    private void bind(CommandPart part, boolean exact) {
-        argBindings.put(part, exact);
+    /**
+     * Bind the current argument to the part with {@code ordinal} in the current command.
+     */
+    private void bind(int ordinal, boolean exact) {
+        bindings.add(argIndex - 1, pathIndex, ordinal, exact);
     }
 
     private void switchToCommand(Command subCommand) {
         if (perCommandDetails != null) {
             fillInDefaults();
         }
-        parseResult.addCommand(subCommand);
-        perCommandDetails = new PerCommandDetails(commandInfoCache.getInfo(subCommand));
+        int slotBase = perCommandDetails == null
+            ? 0
+            : perCommandDetails.slotBase + perCommandDetails.commandInfo.parts.size();
+        CommandInfo info = commandInfo(subCommand);
+        executionPath.add(subCommand);
+        infoPath.add(info);
+        pathIndex++;
+        perCommandDetails = new PerCommandDetails(info, slotBase);
 
         if (!testCondition(subCommand.getCondition())) {
-            throw conditionFailed();
+            throw conditionFailure();
+        }
+    }
+
+    private CommandInfo commandInfo(Command command) {
+        CommandInfo info = converters.sharedCommandInfo(command);
+        if (info != null) {
+            return info;
+        }
+        // the command was removed while this was parsing it, so keep its information here
+        if (localInfos == null) {
+            localInfos = new IdentityHashMap<>();
         }
+        return localInfos.computeIfAbsent(command, CommandInfo::from);
     }
 
     private void fillInDefaults() {
-        for (ArgAcceptingCommandPart part : perCommandDetails().defaultsNeeded) {
-            addValueFull(part, v -> v.values(part.getDefaults()));
+        PerCommandDetails details = perCommandDetails();
+        ImmutableList<CommandPart> parts = details.commandInfo.parts;
+        BitSet defaultsNeeded = details.defaultsNeeded;
+        for (int i = defaultsNeeded.nextSetBit(0); i >= 0; i = defaultsNeeded.nextSetBit(i + 1)) {
+            ArgAcceptingCommandPart part = (ArgAcceptingCommandPart) parts.get(i);
+            addValueFull(i, v -> v.values(part.getDefaults()));
         }
-        for (ArgAcceptingCommandFlag flag : perCommandDetails().argFlagsNeeded) {
-            addValueFull(flag, v -> v.value(""));
+        BitSet argFlagsNeeded = details.argFlagsNeeded;
+        for (int i = argFlagsNeeded.nextSetBit(0); i >= 0; i = argFlagsNeeded.nextSetBit(i + 1)) {
+            addValueFull(i, v -> v.value(""));
         }
     }
 
     private void finalizeCommand() {
         PerCommandDetails details = perCommandDetails();
         if (details.remainingRequiredParts > 0) {
-            Iterator<ArgConsumingCommandPart> requiredIter = Iterators.filter(details.partIter, CommandPart::isRequired);
-            if (requiredIter.hasNext()) {
-                ArgConsumingCommandPart missing = requiredIter.next();
+            ImmutableList<ArgConsumingCommandPart> arguments = details.commandInfo.arguments;
+            ArgConsumingCommandPart missing = null;
+            for (int i = details.partIndex; i < arguments.size(); i++) {
+                if (arguments.get(i).isRequired()) {
+                    missing = arguments.get(i);
+                    break;
+                }
+            }
+            if (missing != null) {
                 if (missing instanceof CommandArgument) {
-                    throw usageException(TextComponent.builder("Missing argument for ")
-                        .append(missing.getTextRepresentation())
+                    ArgConsumingCommandPart missingArgument = missing;
+                    throw incompleteFailure(() -> TextComponent.builder("Missing argument for ")
+                        .append(missingArgument.getTextRepresentation())
                         .append(TextComponent.of("."))
                         .build());
                 } else {
                     checkState(missing instanceof SubCommandPart,
                         "Unknown part interface: %s", missing.getClass());
-                    throw usageException(TextComponent.of("No sub-command provided. Options: "
-                        + ((SubCommandPart) missing).getCommands().stream()
+                    SubCommandPart missingSubCommand = (SubCommandPart) missing;
+                    throw incompleteFailure(() -> TextComponent.of("No sub-command provided. Options: "
+                        + missingSubCommand.getCommands().stream()
                         .distinct()
                         .map(Command::getName)
                         .collect(Collectors.joining(", "))));
@@ -321,16 +539,103 @@ class CommandParser {
         }
     }
 
-    CommandParseResult parse() {
-        logParseStart();
+    ParseOutcome parse() {
+        return run(true);
+    }
+
+    /**
+     * Parse new arguments for the same command, starting from the latest checkpoint
+     * that only depends on arguments which did not change. Results from earlier
+     * parses must not be used after this.
+     */
+    ParseOutcome resume(CommandMetadataImpl newMetadata) {
+        List<Checkpoint> checkpoints = checkNotNull(this.checkpoints, "Checkpoints are not kept");
+        List<String> newArguments = newMetadata.rawArguments();
+        int unchanged = 0;
+        int limit = Math.min(arguments.size(), newArguments.size());
+        while (unchanged < limit && arguments.get(unchanged).equals(newArguments.get(unchanged))) {
+            unchanged++;
+        }
+        int resumeAt = checkpoints.size() - 1;
+        while (resumeAt >= 0 && checkpoints.get(resumeAt).dependsOnArguments() > unchanged) {
+            resumeAt--;
+        }
+        this.metadata = newMetadata;
+        this.arguments = newArguments;
+        if (resumeAt < 0) {
+            reset();
+            return run(true);
+        }
+        restore(checkpoints.get(resumeAt));
+        checkpoints.subList(resumeAt + 1, checkpoints.size()).clear();
+        return run(false);
+    }
+
+    private ParseOutcome run(boolean fromStart) {
+        if (batch == null) {
+            registry = converters.registrySnapshot();
+        }
+        tracer.parseStarted(initial, arguments);
+        boolean successful = false;
+        try {
+            if (fromStart) {
+                switchToCommand(initial);
+            }
+            parseArguments();
+            successful = true;
+            return ParseOutcome.complete(getResult());
+        } catch (ParseFailure failure) {
+            return failure.outcome;
+        } finally {
+            tracer.parseFinished(successful);
+        }
+    }
+
+    private void reset() {
+        argIndex = 0;
+        pathIndex = -1;
+        bindings.truncate(0, 0);
+        executionPath.clear();
+        infoPath.clear();
+        presentSlots.clear();
+        valueSlots.clear();
+        values.clear();
+        perCommandDetails = null;
+        justUnconsumed = false;
+        lastFailedOptional = null;
+        result = null;
+        usedLookahead = false;
+        requireNonNull(checkpoints).clear();
+    }
+
+    private void restore(Checkpoint checkpoint) {
+        argIndex = checkpoint.argIndex;
+        pathIndex = checkpoint.pathIndex;
+        bindings.truncate(checkpoint.bindingsSize, checkpoint.boundArguments);
+        executionPath.subList(pathIndex + 1, executionPath.size()).clear();
+        infoPath.subList(pathIndex + 1, infoPath.size()).clear();
+        presentSlots.subList(checkpoint.presentSlotsSize, presentSlots.size()).clear();
+        valueSlots.subList(checkpoint.valuesSize, valueSlots.size()).clear();
+        values.subList(checkpoint.valuesSize, values.size()).clear();
+        perCommandDetails = new PerCommandDetails(checkpoint.details);
+        justUnconsumed = checkpoint.justUnconsumed;
+        lastFailedOptional = checkpoint.lastFailedOptional;
+        result = null;
+        // checkpoints are only made before the count is used
+        usedLookahead = false;
+    }
+
+    private void parseArguments() {
         while (hasNextArgument()) {
+            if (checkpoints != null && !usedLookahead
+                && (checkpoints.isEmpty() || Iterables.getLast(checkpoints).argIndex < argIndex)) {
+                checkpoints.add(new Checkpoint(this));
+            }
             String token = nextArgument();
-            log("Consuming argument `{}`", token);
             PerCommandDetails details = perCommandDetails();
 
             if (isFlag(token)) {
                 if (token.equals("--")) {
-                    log("Encountered `--`, turning off flag matching.");
                     details.canMatchFlags = false;
                     continue;
                 }
@@ -343,15 +648,13 @@ class CommandParser {
                 // Hit end of parts, this cannot be parsed
                 if (lastFailedOptional != null) {
                     // fail on type-conversion to this instead
-                    throw conversionFailedException(lastFailedOptional, token);
+                    throw conversionFailure(lastFailedOptional, token);
                 }
-                throw tooManyArgumentsException();
+                throw tooManyArguments();
             }
         }
-        log("Finished looking at arguments. Finalizing command.");
         finalizeCommand();
         buildParseResult();
-        return getResult();
     }
 
     private boolean isFlag(String token) {
@@ -365,61 +668,69 @@ class CommandParser {
             return true;
         }
 
-        return token.codePoints()
-            .skip(1)
-            .allMatch(cp -> perCommandDetails().commandInfo.flags.containsKey((char) cp));
+        CommandInfo commandInfo = perCommandDetails().commandInfo;
+        for (int i = 1; i < token.length(); i++) {
+            if (!commandInfo.isFlag(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private boolean parseSubCommand(SubCommandPart part, String token) {
-        CommandInfo commandInfo = perCommandDetails().commandInfo;
-        ImmutableMap<String, Command> subCommands = commandInfo.subCommandTable.row(part);
+    private boolean parseSubCommand(SubCommandPart part, ImmutableMap<String, Command> subCommands, String token) {
         Command sub = subCommands.get(token);
         if (sub == null) {
             return false;
         }
-        bind(part, true);
+        bind(currentPartOrdinal(), true);
         if (part.isRequired()) {
             perCommandDetails().remainingRequiredParts--;
         }
+        tracer.subCommandSwitched(sub);
         switchToCommand(sub);
         return true;
     }
 
-    private TextComponent invalidSubCommandMessage(String token, ImmutableMap<String, Command> subCommands) {
+    private TextComponent invalidSubCommandMessage(String token, SubCommandPart part,
+                                                   ImmutableMap<String, Command> subCommands) {
+        // offer the closest sub-commands first, if the token looks like a typo of some
+        List<Command> close = part.getFuzzyIndex()
+            .nearest(token, FuzzyIndex.typoDistance(token), Integer.MAX_VALUE).stream()
+            .filter(subCommands::containsValue)
+            .distinct()
+            .limit(MAX_CLOSE_SUB_COMMANDS)
+            .collect(Collectors.toList());
+        Collection<Command> options = close.isEmpty() ? subCommands.values() : close;
         return TextComponent.builder()
             .append("Invalid sub-command '")
             .append(ColorConfig.mainText().wrap(token))
-            .append("'. Options: ")
-            .append(subCommands.values().stream().distinct()
+            .append(close.isEmpty() ? "'. Options: " : "'. Did you mean: ")
+            .append(options.stream().distinct()
                 .map(Command::getName)
                 .map(ColorConfig.mainText()::wrap)
                 .collect(ComponentHelper.joiningTexts(
                     TextComponent.empty(),
                     TextComponent.of(", "),
-                    TextComponent.empty()
+                    TextComponent.of(close.isEmpty() ? "" : "?")
                 )))
             .build();
     }
 
     private boolean parseRegularArgument(String token) {
         PerCommandDetails details = perCommandDetails();
-        if (!hasNextPart()) {
-            log("parseRegularArgument: no arguments to attempt matching");
-        }
         CommandArgument lastFailedOptionalLocal = null;
         while (hasNextPart()) {
             ArgConsumingCommandPart nextArg = nextPart();
+            tracer.partTried(nextArg, token);
             if (nextArg instanceof SubCommandPart) {
-                SubCommandPart subCommandPart = (SubCommandPart) nextArg;
-                if (parseSubCommand(subCommandPart, token)) {
+                ImmutableMap<String, Command> subCommands =
+                    details.commandInfo.subCommands(details.partIndex - 1);
+                if (parseSubCommand((SubCommandPart) nextArg, subCommands, token)) {
                     return true;
                 }
                 if (nextArg.isRequired()) {
-                    throw usageException(
-                        invalidSubCommandMessage(
-                            token,
-                            details.commandInfo.subCommandTable.row(subCommandPart)
-                        ));
+                    SubCommandPart subCommandPart = (SubCommandPart) nextArg;
+                    throw usageFailure(() -> invalidSubCommandMessage(token, subCommandPart, subCommands));
                 }
                 continue;
             }
@@ -428,34 +739,34 @@ class CommandParser {
             CommandArgument argPart = (CommandArgument) nextArg;
             if (nextArg.isRequired()) {
                 // good, we can just satisfy it
-                AcceptInfo acceptInfo = getAcceptInfoFromTypeParsers(argPart, token);
+                AcceptInfo acceptInfo = getAcceptInfoFromTypeParsers(currentPartOrdinal(), token);
                 if (!acceptInfo.isAccepted()) {
-                    throw conversionFailedException(argPart, token);
+                    throw conversionFailure(argPart, token);
                 }
                 details.remainingRequiredParts--;
-                addValueFull(nextArg, v -> v.values(consumeArguments(
-                    argPart, token, acceptInfo == AcceptInfo.ACCEPTED_EXACT
-                )));
+                addValueFull(currentPartOrdinal(), v -> consumeArguments(
+                    v, argPart, token, acceptInfo == AcceptInfo.ACCEPTED_EXACT
+                ));
                 return true;
             } else {
-                if (details.commandInfo.subCommandTable.isEmpty()) {
+                if (!details.commandInfo.hasSubCommands) {
                     // No sub-commands -- we can fill optionals based on remaining argument count
                     int remainingArguments = remainingNonFlagArguments();
                     int diff = remainingArguments - details.remainingRequiredParts;
                     if (diff < 0) {
-                        throw notEnoughArgumentsException();
+                        throw notEnoughArguments();
                     } else if (diff == 0) {
                         // do not fill -- save for a required argument
                         continue;
                     }
                     // may fill this if it matches, fall to below
                 }
-                AcceptInfo acceptInfo = getAcceptInfoFromTypeParsers(argPart, token);
+                AcceptInfo acceptInfo = getAcceptInfoFromTypeParsers(currentPartOrdinal(), token);
                 if (acceptInfo.isAccepted()) {
-                    details.defaultsNeeded.remove(nextArg);
-                    addValueFull(nextArg, v -> v.values(consumeArguments(
-                        argPart, token, acceptInfo == AcceptInfo.ACCEPTED_EXACT
-                    )));
+                    details.defaultsNeeded.clear(currentPartOrdinal());
+                    addValueFull(currentPartOrdinal(), v -> consumeArguments(
+                        v, argPart, token, acceptInfo == AcceptInfo.ACCEPTED_EXACT
+                    ));
                     return true;
                 }
                 // store it in case no required arguments match
@@ -466,24 +777,34 @@ class CommandParser {
         return false;
     }
 
-    private ImmutableList<String> consumeArguments(CommandArgument nextArg, String first, boolean exact) {
-        ImmutableList.Builder<String> result = ImmutableList.builder();
-        bind(nextArg, exact);
-        result.add(first);
+    /**
+     * Consume {@code first}, and any following arguments for variable arguments,
+     * into {@code value}. Must be called right after {@code first} was accepted.
+     */
+    private void consumeArguments(CommandValueImpl.Builder value, CommandArgument nextArg,
+                                  String first, boolean exact) {
+        ImmutableList.Builder<String> values = ImmutableList.builder();
+        ImmutableList.Builder<ImmutableMap<Key<?>, ParsedConversion>> conversions = ImmutableList.builder();
+        int ordinal = currentPartOrdinal();
+        bind(ordinal, exact);
+        values.add(first);
+        conversions.add(lastConversions);
         if (nextArg.isVariable()) {
             while (hasNextArgument()) {
                 String next = nextArgument();
-                AcceptInfo acceptInfo = getAcceptInfoFromTypeParsers(nextArg, next);
+                AcceptInfo acceptInfo = getAcceptInfoFromTypeParsers(ordinal, next);
                 if (acceptInfo.isAccepted()) {
-                    bind(nextArg, acceptInfo == AcceptInfo.ACCEPTED_EXACT);
-                    result.add(next);
+                    bind(ordinal, acceptInfo == AcceptInfo.ACCEPTED_EXACT);
+                    values.add(next);
+                    conversions.add(lastConversions);
                 } else {
                     unconsumeArgument();
                     break;
                 }
             }
         }
-        return result.build();
+        value.values(values.build())
+            .parsedConversions(conversions.build());
     }
 
     private enum AcceptInfo {
@@ -498,45 +819,68 @@ class CommandParser {
     }
 
     /**
-     * Check if {@code part} has type converters attached, and if so, return
-     * {@code true} iff any of them will convert {@code next}. If there are no
+     * Check if the part with {@code ordinal} has type converters attached, and if so,
+     * return {@code true} iff any of them will convert {@code next}. If there are no
      * type converters, also return {@code true}.
+     *
+     * <p>
+     * The successful conversions are kept in {@link #lastConversions}.
+     * </p>
      */
-    private AcceptInfo getAcceptInfoFromTypeParsers(ArgAcceptingCommandPart part,
-                                            String next) {
-        ImmutableSet<Key<?>> types = part.getTypes();
+    private AcceptInfo getAcceptInfoFromTypeParsers(int ordinal, String next) {
+        lastConversions = ImmutableMap.of();
+        CommandInfo commandInfo = perCommandDetails().commandInfo;
+        ImmutableList<Key<?>> types = commandInfo.types(ordinal);
         if (types.isEmpty()) {
             return AcceptInfo.ACCEPTED_EXACT;
         }
 
-        boolean acceptedInexact = false;
-        for (Key<?> type : types) {
-            Optional<? extends ArgumentConverter<?>> argumentConverter = converters.getConverter(type);
-            if (!argumentConverter.isPresent()) {
+        ArgumentConverter<?>[] boundConverters = commandInfo.converters(ordinal, registry);
+        ImmutableMap.Builder<Key<?>, ParsedConversion> conversions = null;
+        AcceptInfo acceptInfo = AcceptInfo.REJECTED;
+        for (int i = 0; i < boundConverters.length; i++) {
+            Key<?> type = types.get(i);
+            ArgumentConverter<?> argumentConverter = boundConverters[i];
+            if (argumentConverter == null) {
                 throw new IllegalStateException("No argument converter for " + type);
             }
-            ConversionResult<?> result = argumentConverter.get().convert(next, context);
+            long start = timeConverters ? System.nanoTime() : 0;
+            ConversionResult<?> result = argumentConverter.convert(next, context);
+            if (timeConverters) {
+                tracer.converterInvoked(type, next, result.isSuccessful(), System.nanoTime() - start);
+            }
             if (result.isSuccessful()) {
-                if (((SuccessfulConversion<?>) result).isExactMatch()) {
-                    return AcceptInfo.ACCEPTED_EXACT;
+                SuccessfulConversion<?> success = (SuccessfulConversion<?>) result;
+                if (conversions == null) {
+                    conversions = ImmutableMap.builder();
+                }
+                conversions.put(type, ParsedConversion.of(argumentConverter, success));
+                if (success.isExactMatch()) {
+                    acceptInfo = AcceptInfo.ACCEPTED_EXACT;
+                    break;
                 } else {
-                    acceptedInexact = true;
+                    acceptInfo = AcceptInfo.ACCEPTED_INEXACT;
                 }
             }
         }
-        return acceptedInexact ? AcceptInfo.ACCEPTED_INEXACT : AcceptInfo.REJECTED;
+        if (conversions != null) {
+            lastConversions = conversions.build();
+        }
+        return acceptInfo;
     }
 
     private void parseFlags(String flags) {
         for (int i = 0; i < flags.length(); i++) {
             char c = flags.charAt(i);
-            CommandFlag flag = perCommandDetails().commandInfo.flags.get(c);
-            if (flag == null) {
-                buildParseResult();
-                throw new NoSuchFlagException(getResult(), c);
+            int flagOrdinal = perCommandDetails().commandInfo.flagOrdinal(c);
+            if (flagOrdinal == -1) {
+                throw failure(false, result -> writableStackTraces
+                    ? new NoSuchFlagException(result, c)
+                    : new NoSuchFlagException(result, c, false));
             }
-            if (seenFlags.contains(flag)) {
-                throw usageException(TextComponent.builder("Flag ")
+            CommandFlag flag = (CommandFlag) perCommandDetails().commandInfo.parts.get(flagOrdinal);
+            if (perCommandDetails().seenFlags.get(flagOrdinal)) {
+                throw usageFailure(() -> TextComponent.builder("Flag ")
                     .append(flag.getTextRepresentation())
                     .append(" has already been specified.")
                     .build());
@@ -544,39 +888,51 @@ class CommandParser {
             if (flag instanceof ArgAcceptingCommandFlag) {
                 if (i + 1 < flags.length()) {
                     // Only allow argument-flags at the end of flag-combos.
-                    throw usageException(TextComponent.of("Argument-accepting flags must be " +
+                    throw usageFailure(() -> TextComponent.of("Argument-accepting flags must be " +
                         "at the end of combined flag groups."));
                 }
-                bind(flag, true);
+                bind(flagOrdinal, true);
                 ArgAcceptingCommandFlag argPart = (ArgAcceptingCommandFlag) flag;
                 if (!hasNextArgument()) {
-                    throw notEnoughArgumentsException();
+                    throw notEnoughArguments();
                 }
                 String nextToken = nextArgument();
-                AcceptInfo acceptInfo = getAcceptInfoFromTypeParsers(argPart, nextToken);
+                AcceptInfo acceptInfo = getAcceptInfoFromTypeParsers(flagOrdinal, nextToken);
                 if (!acceptInfo.isAccepted()) {
-                    throw conversionFailedException(argPart, nextToken);
+                    throw conversionFailure(argPart, nextToken);
                 }
-                addValueFull(flag, v -> v.value(nextToken));
-                bind(flag, acceptInfo == AcceptInfo.ACCEPTED_EXACT);
-                perCommandDetails().defaultsNeeded.remove(flag);
-                perCommandDetails().argFlagsNeeded.remove(flag);
+                ImmutableMap<Key<?>, ParsedConversion> conversions = lastConversions;
+                addValueFull(flagOrdinal, v -> v.value(nextToken)
+                    .parsedConversions(ImmutableList.of(conversions)));
+                bind(flagOrdinal, acceptInfo == AcceptInfo.ACCEPTED_EXACT);
+                perCommandDetails().defaultsNeeded.clear(flagOrdinal);
+                perCommandDetails().argFlagsNeeded.clear(flagOrdinal);
             } else {
                 // Sanity-check. Real check is in `CommandInfo.from`.
                 checkState(flag instanceof NoArgCommandFlag);
-                bind(flag, true);
-                parameters.addPresentPart(flag);
+                bind(flagOrdinal, true);
+                presentSlots.add(slot(flagOrdinal));
             }
-            seenFlags.add(flag);
+            perCommandDetails().seenFlags.set(flagOrdinal);
         }
     }
 
-    private void addValueFull(CommandPart part,
+    /**
+     * Get the slot of the part with {@code ordinal} in the current command.
+     */
+    private int slot(int ordinal) {
+        return perCommandDetails().slotBase + ordinal;
+    }
+
+    private void addValueFull(int ordinal,
                               Consumer<CommandValueImpl.Builder> valueAdder) {
-        parameters.addPresentPart(part);
+        CommandPart part = perCommandDetails().commandInfo.parts.get(ordinal);
+        int slot = slot(ordinal);
+        presentSlots.add(slot);
         CommandValueImpl.Builder builder = CommandValueImpl.builder();
         valueAdder.accept(builder);
-        parameters.addValue(part, builder
+        valueSlots.add(slot);
+        values.add(builder
             .commandContextSupplier(this::getResult)
             .partContext(part)
             .injectedValues(context)
@@ -22,6 +22,7 @@ package org.enginehub.piston.impl;
 import com.google.auto.value.AutoValue;
 import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.enginehub.piston.CommandParseResult;
 import org.enginehub.piston.CommandValue;
 import org.enginehub.piston.converter.ArgumentConverter;
@@ -33,7 +34,9 @@ import org.enginehub.piston.inject.InjectedValueAccess;
 import org.enginehub.piston.inject.Key;
 import org.enginehub.piston.part.CommandPart;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -43,7 +46,8 @@ import static com.google.common.base.Preconditions.checkState;
 abstract class CommandValueImpl implements CommandValue {
 
     static Builder builder() {
-        return new AutoValue_CommandValueImpl.Builder();
+        return new AutoValue_CommandValueImpl.Builder()
+            .parsedConversions(ImmutableList.of());
     }
 
     @AutoValue.Builder
@@ -63,6 +67,11 @@ abstract class CommandValueImpl implements CommandValue {
 
         Builder values(Collection<String> values);
 
+        /**
+         * Set the conversions made while parsing, one map per value.
+         */
+        Builder parsedConversions(Collection<ImmutableMap<Key<?>, ParsedConversion>> conversions);
+
         CommandValueImpl build();
 
     }
@@ -85,6 +94,32 @@ abstract class CommandValueImpl implements CommandValue {
 
     abstract ImmutableList<String> values();
 
+    /**
+     * Conversions cached while parsing. They are not part of {@link #equals(Object)}.
+     */
+    abstract ImmutableList<ImmutableMap<Key<?>, ParsedConversion>> parsedConversions();
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CommandValueImpl)) {
+            return false;
+        }
+        CommandValueImpl that = (CommandValueImpl) o;
+        return manager().equals(that.manager())
+            && commandContextSupplier().equals(that.commandContextSupplier())
+            && partContext().equals(that.partContext())
+            && injectedValues().equals(that.injectedValues())
+            && values().equals(that.values());
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(manager(), commandContextSupplier(), partContext(), injectedValues(), values());
+    }
+
     @Override
     public ImmutableList<String> asStrings() {
         return values();
@@ -93,13 +128,20 @@ abstract class CommandValueImpl implements CommandValue {
     @Override
     public <T> ImmutableList<T> asMultiple(Key<T> key) {
         ImmutableList.Builder<T> values = ImmutableList.builder();
-        for (String value : values()) {
+        Optional<ArgumentConverter<T>> converter = Optional.empty();
+        for (int i = 0; i < values().size(); i++) {
+            String value = values().get(i);
             if (value.trim().isEmpty()) {
                 continue;
             }
-            Optional<ArgumentConverter<T>> converter = manager().getConverter(key);
-            checkState(converter.isPresent(), "No converter for %s", key);
-            ConversionResult<T> convert = converter.get().convert(value, injectedValues());
+            if (!converter.isPresent()) {
+                converter = manager().getConverter(key);
+                checkState(converter.isPresent(), "No converter for %s", key);
+            }
+            ConversionResult<T> convert = parsedConversion(i, key, converter.get());
+            if (convert == null) {
+                convert = converter.get().convert(value, injectedValues());
+            }
             if (!convert.isSuccessful()) {
                 throw new ConversionFailedException(commandContext(),
                     partContext().getTextRepresentation(),
@@ -110,4 +152,19 @@ abstract class CommandValueImpl implements CommandValue {
         }
         return values.build();
     }
+
+    @Nullable
+    private <T> ConversionResult<T> parsedConversion(int index, Key<T> key, ArgumentConverter<T> converter) {
+        if (index >= parsedConversions().size()) {
+            return null;
+        }
+        ParsedConversion parsed = parsedConversions().get(index).get(key);
+        // only valid if the same converter is still registered
+        if (parsed == null || parsed.converter() != converter || !converter.canReuseConversions()) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        ConversionResult<T> result = (ConversionResult<T>) parsed.result();
+        return result;
+    }
 }
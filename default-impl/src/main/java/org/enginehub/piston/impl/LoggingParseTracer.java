@@ -0,0 +1,88 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.impl;
+
+import org.apache.logging.log4j.Logger;
+import org.enginehub.piston.Command;
+import org.enginehub.piston.inject.Key;
+import org.enginehub.piston.part.CommandPart;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs parse events at the debug level, each prefixed with the ID of its parse.
+ */
+final class LoggingParseTracer implements ParseTracer {
+
+    static final LoggingParseTracer INSTANCE = new LoggingParseTracer();
+
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+
+    private final AtomicLong nextParseId = new AtomicLong();
+    private final ThreadLocal<Long> currentParseId = new ThreadLocal<>();
+
+    private LoggingParseTracer() {
+    }
+
+    private void log(String message, Object... args) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[" + currentParseId.get() + "]: " + message, args);
+        }
+    }
+
+    @Override
+    public void parseStarted(Command command, List<String> arguments) {
+        currentParseId.set(nextParseId.incrementAndGet());
+        log("Parsing {} with {}", command.getName(), arguments);
+    }
+
+    @Override
+    public void tokenConsumed(int index, String token) {
+        log("Consumed token {}: '{}'", index, token);
+    }
+
+    @Override
+    public void partTried(CommandPart part, String token) {
+        log("Trying '{}' against {}", token, part);
+    }
+
+    @Override
+    public void converterInvoked(Key<?> key, String token, boolean successful, long nanos) {
+        log("Converted '{}' to {} ({}) in {}ns", token, key, successful ? "success" : "failure", nanos);
+    }
+
+    @Override
+    public void subCommandSwitched(Command command) {
+        log("Switched to sub-command {}", command.getName());
+    }
+
+    @Override
+    public void parseFinished(boolean successful) {
+        log("Finished parsing ({})", successful ? "success" : "failure");
+        currentParseId.remove();
+    }
+
+    @Override
+    public String toString() {
+        return "ParseTracer.logging()";
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.impl;
+
+import org.enginehub.piston.Command;
+import org.enginehub.piston.inject.InjectedValueAccess;
+import org.enginehub.piston.inject.MemoizingValueAccess;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Work shared by the parses of one batch: the registry, the memoized
+ * context, and the results of conditions. Not thread-safe.
+ */
+final class ParseBatch {
+
+    final RegistrySnapshot registry;
+    final InjectedValueAccess context;
+    private final Map<Command.Condition, Boolean> conditionResults = new IdentityHashMap<>();
+
+    ParseBatch(RegistrySnapshot registry, InjectedValueAccess context) {
+        this.registry = registry;
+        this.context = MemoizingValueAccess.wrap(context);
+    }
+
+    /**
+     * Test {@code condition} against the batch's context, once per batch.
+     */
+    boolean testCondition(Command.Condition condition) {
+        return conditionResults.computeIfAbsent(condition, c -> c.satisfied(context));
+    }
+
+}
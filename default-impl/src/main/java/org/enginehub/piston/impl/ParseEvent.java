@@ -0,0 +1,146 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.impl;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import org.enginehub.piston.Command;
+import org.enginehub.piston.inject.Key;
+import org.enginehub.piston.part.CommandPart;
+
+import javax.annotation.Nullable;
+
+/**
+ * A single event recorded by {@link RecordingParseTracer}.
+ *
+ * @since 0.5.11
+ */
+@AutoValue
+public abstract class ParseEvent {
+
+    public enum Type {
+        PARSE_STARTED,
+        TOKEN_CONSUMED,
+        PART_TRIED,
+        CONVERTER_INVOKED,
+        SUB_COMMAND_SWITCHED,
+        PARSE_FINISHED,
+    }
+
+    static Builder builder(Type type, long parseId) {
+        return new AutoValue_ParseEvent.Builder()
+            .type(type)
+            .parseId(parseId)
+            .threadName(Thread.currentThread().getName())
+            .arguments(ImmutableList.of())
+            .index(-1)
+            .successful(true)
+            .nanos(0);
+    }
+
+    @AutoValue.Builder
+    interface Builder {
+
+        Builder type(Type type);
+
+        Builder parseId(long parseId);
+
+        Builder threadName(String threadName);
+
+        Builder command(@Nullable Command command);
+
+        Builder part(@Nullable CommandPart part);
+
+        Builder key(@Nullable Key<?> key);
+
+        Builder arguments(ImmutableList<String> arguments);
+
+        Builder token(@Nullable String token);
+
+        Builder index(int index);
+
+        Builder successful(boolean successful);
+
+        Builder nanos(long nanos);
+
+        ParseEvent build();
+    }
+
+    ParseEvent() {
+    }
+
+    public abstract Type getType();
+
+    /**
+     * Identifies the parse the event came from. Events from one parse share it,
+     * so concurrent parses can be told apart.
+     */
+    public abstract long getParseId();
+
+    /**
+     * The name of the thread that did the parse.
+     */
+    public abstract String getThreadName();
+
+    /**
+     * The command, for {@link Type#PARSE_STARTED} and {@link Type#SUB_COMMAND_SWITCHED}.
+     */
+    @Nullable
+    public abstract Command getCommand();
+
+    /**
+     * The part, for {@link Type#PART_TRIED}.
+     */
+    @Nullable
+    public abstract CommandPart getPart();
+
+    /**
+     * The converter key, for {@link Type#CONVERTER_INVOKED}.
+     */
+    @Nullable
+    public abstract Key<?> getKey();
+
+    /**
+     * The arguments being parsed, for {@link Type#PARSE_STARTED}, otherwise empty.
+     */
+    public abstract ImmutableList<String> getArguments();
+
+    /**
+     * The token being parsed, if any.
+     */
+    @Nullable
+    public abstract String getToken();
+
+    /**
+     * The argument index, for {@link Type#TOKEN_CONSUMED}, otherwise {@code -1}.
+     */
+    public abstract int getIndex();
+
+    /**
+     * If the conversion or parse succeeded. Always {@code true} for other events.
+     */
+    public abstract boolean isSuccessful();
+
+    /**
+     * The time the converter took, for {@link Type#CONVERTER_INVOKED}, otherwise {@code 0}.
+     */
+    public abstract long getNanos();
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.enginehub.piston.impl;
+
+import org.enginehub.piston.Command;
+import org.enginehub.piston.inject.Key;
+import org.enginehub.piston.part.CommandPart;
+
+import java.util.List;
+
+/**
+ * Receives events from the parser as it works through a command line.
+ *
+ * <p>
+ * All methods do nothing by default. Tracers may be called from multiple
+ * threads at once, if commands are parsed concurrently.
+ * </p>
+ *
+ * @since 0.5.11
+ */
+public interface ParseTracer {
+
+    /**
+     * A tracer that ignores all events. The parser skips timing converters
+     * when it is given this tracer.
+     */
+    static ParseTracer noOp() {
+        return NoOpParseTracer.INSTANCE;
+    }
+
+    /**
+     * A tracer that logs all events at the debug level, as the parser did before
+     * tracers were added.
+     */
+    static ParseTracer logging() {
+        return LoggingParseTracer.INSTANCE;
+    }
+
+    /**
+     * Called when parsing of {@code command} starts.
+     */
+    default void parseStarted(Command command, List<String> arguments) {
+    }
+
+    /**
+     * Called when the argument at {@code index} is taken from the argument list.
+     */
+    default void tokenConsumed(int index, String token) {
+    }
+
+    /**
+     * Called when {@code part} is tried against {@code token}.
+     */
+    default void partTried(CommandPart part, String token) {
+    }
+
+    /**
+     * Called after the converter for {@code key} was run on {@code token}.
+     *
+     * @param nanos the time the converter took, in nanoseconds
+     */
+    default void converterInvoked(Key<?> key, String token, boolean successful, long nanos) {
+    }
+
+    /**
+     * Called when the parser moves into a sub-command.
+     */
+    default void subCommandSwitched(Command command) {
+    }
+
+    /**
+     * Called when parsing ends, with {@code successful} set to {@code false}
+     * if an exception was thrown.
+     */
+    default void parseFinished(boolean successful) {
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.impl;
+
+import com.google.auto.value.AutoValue;
+import org.enginehub.piston.converter.ArgumentConverter;
+import org.enginehub.piston.converter.SuccessfulConversion;
+
+/**
+ * A successful conversion made while parsing, kept so the value doesn't need
+ * to be converted again when it is extracted.
+ */
+@AutoValue
+abstract class ParsedConversion {
+
+    static ParsedConversion of(ArgumentConverter<?> converter, SuccessfulConversion<?> result) {
+        return new AutoValue_ParsedConversion(converter, result);
+    }
+
+    ParsedConversion() {
+    }
+
+    /**
+     * The converter that made the conversion.
+     */
+    abstract ArgumentConverter<?> converter();
+
+    abstract SuccessfulConversion<?> result();
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.piston.Command;
+import org.enginehub.piston.inject.Key;
+import org.enginehub.piston.part.CommandPart;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A tracer that records the events it receives, for profiling.
+ *
+ * <p>
+ * At most {@linkplain #getCapacity() capacity} events are kept. Once it is reached,
+ * the oldest events are dropped to make room, and {@linkplain #getDroppedCount() counted}.
+ * Events from concurrent parses are told apart by their {@linkplain ParseEvent#getParseId()
+ * parse ID}.
+ * </p>
+ *
+ * @since 0.5.11
+ */
+public final class RecordingParseTracer implements ParseTracer {
+
+    private static final int DEFAULT_CAPACITY = 10_000;
+
+    private final AtomicLong nextParseId = new AtomicLong();
+    /**
+     * The parse running on each thread. A parse happens on a single thread.
+     */
+    private final ThreadLocal<Long> currentParseId = new ThreadLocal<>();
+    private final int capacity;
+    private final Deque<ParseEvent> events = new ArrayDeque<>();
+    private long droppedCount;
+
+    public RecordingParseTracer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a tracer that keeps at most {@code capacity} events.
+     */
+    public RecordingParseTracer(int capacity) {
+        checkArgument(capacity > 0, "Capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    private ParseEvent.Builder event(ParseEvent.Type type) {
+        Long parseId = currentParseId.get();
+        return ParseEvent.builder(type, parseId == null ? -1 : parseId);
+    }
+
+    private synchronized void record(ParseEvent.Builder event) {
+        if (events.size() == capacity) {
+            events.removeFirst();
+            droppedCount++;
+        }
+        events.addLast(event.build());
+    }
+
+    @Override
+    public void parseStarted(Command command, List<String> arguments) {
+        currentParseId.set(nextParseId.incrementAndGet());
+        record(event(ParseEvent.Type.PARSE_STARTED)
+            .command(command)
+            .arguments(ImmutableList.copyOf(arguments)));
+    }
+
+    @Override
+    public void tokenConsumed(int index, String token) {
+        record(event(ParseEvent.Type.TOKEN_CONSUMED).token(token).index(index));
+    }
+
+    @Override
+    public void partTried(CommandPart part, String token) {
+        record(event(ParseEvent.Type.PART_TRIED).part(part).token(token));
+    }
+
+    @Override
+    public void converterInvoked(Key<?> key, String token, boolean successful, long nanos) {
+        record(event(ParseEvent.Type.CONVERTER_INVOKED)
+            .key(key)
+            .token(token)
+            .successful(successful)
+            .nanos(nanos));
+    }
+
+    @Override
+    public void subCommandSwitched(Command command) {
+        record(event(ParseEvent.Type.SUB_COMMAND_SWITCHED).command(command));
+    }
+
+    @Override
+    public void parseFinished(boolean successful) {
+        record(event(ParseEvent.Type.PARSE_FINISHED).successful(successful));
+        currentParseId.remove();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get a snapshot of the recorded events, in order.
+     */
+    public synchronized ImmutableList<ParseEvent> getEvents() {
+        return ImmutableList.copyOf(events);
+    }
+
+    /**
+     * Get how many events were dropped to stay within the capacity, since the last
+     * {@link #clear()}.
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized void clear() {
+        events.clear();
+        droppedCount = 0;
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.enginehub.piston.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import org.enginehub.piston.Command;
+import org.enginehub.piston.converter.ArgumentConverter;
+import org.enginehub.piston.inject.Key;
+import org.enginehub.piston.part.SubCommandPart;
+import org.enginehub.piston.util.PrefixTrie;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of the commands and converters registered with a
+ * {@link CommandManagerImpl}. Registering creates a new snapshot, so readers
+ * never need to lock.
+ */
+final class RegistrySnapshot {
+
+    static final RegistrySnapshot EMPTY = new RegistrySnapshot(
+        ImmutableMap.of(), ImmutableMap.of(), ImmutableMap.of(), 0
+    );
+
+    /**
+     * Commands by name and alias.
+     */
+    final ImmutableMap<String, Command> commands;
+    /**
+     * Commands registered by {@link #withNamespace(String, Collection)}, by namespace.
+     */
+    final ImmutableMap<String, ImmutableList<Command>> namespaces;
+    final ImmutableMap<Key<?>, ArgumentConverter<?>> converters;
+    /**
+     * Changes every time the converters change, so converters bound to
+     * command parts can be checked for staleness.
+     */
+    final long converterVersion;
+    @Nullable
+    private volatile ImmutableList<Command> allCommands;
+    @Nullable
+    private volatile Set<Command> reachableCommands;
+    @Nullable
+    private volatile PrefixTrie<Command> commandIndex;
+
+    private RegistrySnapshot(ImmutableMap<String, Command> commands,
+                             ImmutableMap<String, ImmutableList<Command>> namespaces,
+                             ImmutableMap<Key<?>, ArgumentConverter<?>> converters,
+                             long converterVersion) {
+        this.commands = commands;
+        this.namespaces = namespaces;
+        this.converters = converters;
+        this.converterVersion = converterVersion;
+    }
+
+    /**
+     * Get each registered command once, in registration order. Commands are compared
+     * by identity, as their {@code equals} and {@code hashCode} walk the whole command
+     * tree. This is built on first use, like {@link #commandIndex()}.
+     */
+    ImmutableList<Command> allCommands() {
+        ImmutableList<Command> result = allCommands;
+        if (result == null) {
+            Set<Command> seen = Sets.newIdentityHashSet();
+            allCommands = result = commands.values().stream()
+                .filter(seen::add)
+                .collect(ImmutableList.toImmutableList());
+        }
+        return result;
+    }
+
+    /**
+     * Get the registered commands and all of their sub-commands, compared by
+     * identity. This is built on first use, like {@link #commandIndex()}.
+     */
+    Set<Command> reachableCommands() {
+        Set<Command> result = reachableCommands;
+        if (result == null) {
+            Set<Command> reachable = Sets.newIdentityHashSet();
+            Deque<Command> pending = new ArrayDeque<>(allCommands());
+            while (!pending.isEmpty()) {
+                Command command = pending.pop();
+                if (reachable.add(command)) {
+                    command.getParts().stream()
+                        .filter(p -> p instanceof SubCommandPart)
+                        .flatMap(p -> ((SubCommandPart) p).getCommands().stream())
+                        .forEach(pending::push);
+                }
+            }
+            reachableCommands = result = Collections.unmodifiableSet(reachable);
+        }
+        return result;
+    }
+
+    /**
+     * Get the commands indexed by name and alias. This is built on first use,
+     * so registering many commands in a row doesn't rebuild it each time.
+     */
+    PrefixTrie<Command> commandIndex() {
+        PrefixTrie<Command> index = commandIndex;
+        if (index == null) {
+            // racing here only builds the same index twice
+            PrefixTrie.Builder<Command> builder = PrefixTrie.builder();
+            commands.forEach(builder::put);
+            commandIndex = index = builder.build();
+        }
+        return index;
+    }
+
+    /**
+     * Create a snapshot with {@code command} registered under its name and aliases.
+     *
+     * @throws IllegalArgumentException if any of the names are taken
+     */
+    RegistrySnapshot withCommand(Command command) {
+        return withCommands(ImmutableList.of(command));
+    }
+
+    /**
+     * Create a snapshot with all of {@code commands} registered under their names and aliases.
+     *
+     * @throws IllegalArgumentException if any of the names are taken, or used twice
+     */
+    RegistrySnapshot withCommands(Collection<Command> commands) {
+        Map<String, Command> newCommands = new LinkedHashMap<>(this.commands);
+        putAllIfAvailable(newCommands, commands);
+        return new RegistrySnapshot(ImmutableMap.copyOf(newCommands), namespaces, converters, converterVersion);
+    }
+
+    /**
+     * Create a snapshot without {@code command}, compared by identity. Other commands
+     * are not touched, even if they are equal to it or are sub-commands of it.
+     */
+    RegistrySnapshot withoutCommand(Command command) {
+        Map<String, Command> newCommands = new LinkedHashMap<>(commands);
+        newCommands.values().removeIf(c -> c == command);
+        ImmutableMap.Builder<String, ImmutableList<Command>> newNamespaces = ImmutableMap.builder();
+        namespaces.forEach((namespace, members) -> {
+            ImmutableList<Command> kept = ImmutableList.copyOf(
+                members.stream().filter(c -> c != command).iterator()
+            );
+            if (!kept.isEmpty()) {
+                newNamespaces.put(namespace, kept);
+            }
+        });
+        return new RegistrySnapshot(ImmutableMap.copyOf(newCommands), newNamespaces.build(),
+            converters, converterVersion);
+    }
+
+    /**
+     * Create a snapshot where {@code namespace} holds exactly {@code commands},
+     * unregistering the ones it held before.
+     *
+     * @throws IllegalArgumentException if any of the names are taken by other
+     *     commands, or used twice
+     */
+    RegistrySnapshot withNamespace(String namespace, Collection<Command> commands) {
+        Set<Command> previous = Sets.newIdentityHashSet();
+        previous.addAll(namespaces.getOrDefault(namespace, ImmutableList.of()));
+        Map<String, Command> newCommands = new LinkedHashMap<>(this.commands);
+        newCommands.values().removeIf(previous::contains);
+        putAllIfAvailable(newCommands, commands);
+        Map<String, ImmutableList<Command>> newNamespaces = new LinkedHashMap<>(namespaces);
+        if (commands.isEmpty()) {
+            newNamespaces.remove(namespace);
+        } else {
+            newNamespaces.put(namespace, ImmutableList.copyOf(commands));
+        }
+        return new RegistrySnapshot(ImmutableMap.copyOf(newCommands), ImmutableMap.copyOf(newNamespaces),
+            converters, converterVersion);
+    }
+
+    private static void putAllIfAvailable(Map<String, Command> map, Collection<Command> commands) {
+        for (Command command : commands) {
+            putIfAvailable(map, command.getName(), command);
+            for (String alias : command.getAliases()) {
+                putIfAvailable(map, alias, command);
+            }
+        }
+    }
+
+    private static void putIfAvailable(Map<String, Command> commands, String name, Command command) {
+        Command existing = commands.putIfAbsent(name, command);
+        if (existing != null) {
+            throw new IllegalArgumentException("A command is already registered under "
+                + name + "; existing=" + existing + ",rejected=" + command);
+        }
+    }
+
+    RegistrySnapshot withConverter(Key<?> key, ArgumentConverter<?> converter) {
+        return new RegistrySnapshot(commands, namespaces, ImmutableMap.<Key<?>, ArgumentConverter<?>>builder()
+            .putAll(converters)
+            .put(key, converter)
+            .buildKeepingLast(), converterVersion + 1);
+    }
+
+}
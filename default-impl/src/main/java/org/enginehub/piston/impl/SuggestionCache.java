@@ -0,0 +1,128 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.enginehub.piston.inject.InjectedValueAccess;
+import org.enginehub.piston.suggestion.Suggestion;
+import org.enginehub.piston.tokenizer.TokenizedLine;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Caches suggestions by their arguments and context fingerprint.
+ *
+ * <p>
+ * Keys hold the registry snapshot the suggestions were found with. A result
+ * stored while the registry changes is then never found, rather than stale.
+ * </p>
+ */
+class SuggestionCache {
+
+    private final Cache<Key, ImmutableSet<Suggestion>> cache;
+    private final Function<? super InjectedValueAccess, ?> fingerprint;
+
+    SuggestionCache(SuggestionCachePolicy policy) {
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(policy.getMaximumSize())
+            .expireAfterWrite(policy.getExpireAfterWrite())
+            .ticker(policy.getTicker())
+            .recordStats()
+            .build();
+        this.fingerprint = policy.getFingerprint();
+    }
+
+    Key key(RegistrySnapshot snapshot, InjectedValueAccess context, List<String> args, int limit) {
+        Object contextFingerprint = checkNotNull(fingerprint.apply(context), "Null fingerprint");
+        // offsets come from the line, so it is part of the key
+        String line = args instanceof TokenizedLine ? ((TokenizedLine) args).getLine().toString() : null;
+        return new Key(snapshot, ImmutableList.copyOf(args), line, limit, contextFingerprint);
+    }
+
+    @Nullable
+    ImmutableSet<Suggestion> get(Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    void put(Key key, ImmutableSet<Suggestion> suggestions) {
+        cache.put(key, suggestions);
+    }
+
+    void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    CacheStats stats() {
+        return cache.stats();
+    }
+
+    static final class Key {
+
+        /**
+         * Compared by identity.
+         */
+        final RegistrySnapshot snapshot;
+        final ImmutableList<String> args;
+        @Nullable
+        final String line;
+        final int limit;
+        final Object fingerprint;
+
+        Key(RegistrySnapshot snapshot, ImmutableList<String> args, @Nullable String line, int limit,
+            Object fingerprint) {
+            this.snapshot = snapshot;
+            this.args = args;
+            this.line = line;
+            this.limit = limit;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return snapshot == key.snapshot
+                && limit == key.limit
+                && args.equals(key.args)
+                && Objects.equals(line, key.line)
+                && fingerprint.equals(key.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(snapshot), args, line, limit, fingerprint);
+        }
+    }
+
+}
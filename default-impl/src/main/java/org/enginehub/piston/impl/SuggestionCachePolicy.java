@@ -0,0 +1,100 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.piston.impl;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Ticker;
+import org.enginehub.piston.inject.InjectedValueAccess;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * How {@link CommandManagerImpl} caches suggestions.
+ *
+ * <p>
+ * Suggestions are cached by the arguments, and the fingerprint of the context.
+ * Contexts with equal fingerprints must be given the same suggestions, so the
+ * fingerprint should cover whatever conditions and converters check, such as
+ * permissions. Suggestions are not cached if a converter they may come from
+ * {@linkplain org.enginehub.piston.converter.ArgumentConverter#canCacheSuggestions()
+ * is volatile}, or the command has its own suggester. Suggestions ranked by a
+ * {@link java.util.Comparator} are not cached either.
+ * </p>
+ *
+ * @since 0.5.11
+ */
+@AutoValue
+public abstract class SuggestionCachePolicy {
+
+    public static Builder builder() {
+        return new AutoValue_SuggestionCachePolicy.Builder()
+            .maximumSize(1000)
+            .expireAfterWrite(Duration.ofSeconds(5))
+            .ticker(Ticker.systemTicker());
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+
+        /**
+         * Set how many results are kept. Defaults to {@code 1000}.
+         */
+        public abstract Builder maximumSize(long maximumSize);
+
+        /**
+         * Set how long results are kept. Defaults to five seconds.
+         */
+        public abstract Builder expireAfterWrite(Duration expireAfterWrite);
+
+        /**
+         * Set the function that fingerprints a context. It must not return {@code null}.
+         */
+        public abstract Builder fingerprint(Function<? super InjectedValueAccess, ?> fingerprint);
+
+        /**
+         * Set the time source for expiry.
+         */
+        public abstract Builder ticker(Ticker ticker);
+
+        abstract SuggestionCachePolicy autoBuild();
+
+        public final SuggestionCachePolicy build() {
+            SuggestionCachePolicy policy = autoBuild();
+            checkArgument(policy.getMaximumSize() >= 0, "Maximum size must not be negative");
+            checkArgument(!policy.getExpireAfterWrite().isNegative(), "Expiry must not be negative");
+            return policy;
+        }
+    }
+
+    SuggestionCachePolicy() {
+    }
+
+    public abstract long getMaximumSize();
+
+    public abstract Duration getExpireAfterWrite();
+
+    public abstract Function<? super InjectedValueAccess, ?> getFingerprint();
+
+    public abstract Ticker getTicker();
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Piston, a flexible command management system.
+ * Copyright (C) EngineHub <https://www.enginehub.org>
+ * Copyright (C) Piston contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.enginehub.piston.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.enginehub.piston.Command;
+import org.enginehub.piston.ParseOutcome;
+import org.enginehub.piston.inject.InjectedValueAccess;
+import org.enginehub.piston.suggestion.Suggestion;
+import org.enginehub.piston.suggestion.SuggestionSession;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Keeps one parser for the session, and resumes it from the last unchanged
+ * argument when the command line changes.
+ *
+ * <p>
+ * Conditions that passed for the unchanged arguments are not tested again.
+ * </p>
+ */
+final class SuggestionSessionImpl implements SuggestionSession {
+
+    private final CommandManagerImpl manager;
+    private final InjectedValueAccess context;
+    @Nullable
+    private CommandParser parser;
+    @Nullable
+    private Command command;
+    @Nullable
+    private String calledName;
+
+    SuggestionSessionImpl(CommandManagerImpl manager, InjectedValueAccess context) {
+        this.manager = manager;
+        this.context = context;
+    }
+
+    @Override
+    public ImmutableSet<Suggestion> getSuggestions(List<String> args) {
+        String name = args.get(0);
+        Command command = manager.getCommand(name).orElse(null);
+        if (command == null) {
+            parser = null;
+            return CommandManagerImpl.collect(manager.suggestCommands(context, name, args), Integer.MAX_VALUE, null);
+        }
+        CommandMetadataImpl metadata = manager.newMetadata(name, args);
+        ParseOutcome outcome;
+        if (parser != null && command == this.command && name.equals(calledName)) {
+            outcome = parser.resume(metadata);
+        } else {
+            parser = manager.newParser(command, metadata, context, true, null);
+            this.command = command;
+            this.calledName = name;
+            outcome = parser.parse();
+        }
+        return CommandManagerImpl.collect(manager.suggest(command, args, outcome, Integer.MAX_VALUE),
+            Integer.MAX_VALUE, null);
+    }
+
+}
@@ -20,17 +20,51 @@
 package org.enginehub.piston.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.kyori.text.Component;
 import net.kyori.text.TextComponent;
 import net.kyori.text.TranslatableComponent;
 import org.enginehub.piston.Command;
 import org.enginehub.piston.CommandManager;
+import org.enginehub.piston.CommandParameters;
+import org.enginehub.piston.ExecutionResult;
+import org.enginehub.piston.ParseOutcome;
+import org.enginehub.piston.converter.ArgumentConverter;
+import org.enginehub.piston.converter.ConversionResult;
+import org.enginehub.piston.converter.ForwardingArgumentConverter;
+import org.enginehub.piston.converter.SimpleArgumentConverter;
+import org.enginehub.piston.converter.SuccessfulConversion;
+import org.enginehub.piston.exception.CommandExecutionException;
 import org.enginehub.piston.exception.ConditionFailedException;
+import org.enginehub.piston.exception.UsageException;
+import org.enginehub.piston.inject.InjectAnnotation;
 import org.enginehub.piston.inject.InjectedValueAccess;
+import org.enginehub.piston.inject.Key;
+import org.enginehub.piston.inject.MemoizingValueAccess;
+import org.enginehub.piston.part.CommandArgument;
+import org.enginehub.piston.part.CommandParts;
+import org.enginehub.piston.part.NoArgCommandFlag;
 import org.enginehub.piston.part.SubCommandPart;
+import org.enginehub.piston.suggestion.Suggestion;
+import org.enginehub.piston.suggestion.SuggestionSession;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("A CommandManager")
 public class CommandManagerTest {
@@ -69,4 +103,576 @@ public class CommandManagerTest {
             manager.parse(InjectedValueAccess.EMPTY, ImmutableList.of("test", "sub"))
         );
     }
+
+    @Test
+    @DisplayName("converts each argument once when executing, if the converter allows it")
+    void executeConvertsArgumentsOnce() {
+        CommandManager manager = new CommandManagerImpl();
+        AtomicInteger conversions = new AtomicInteger();
+        Key<Integer> key = Key.of(Integer.class);
+        ArgumentConverter<Integer> converter = SimpleArgumentConverter.from((input, context) -> {
+            conversions.incrementAndGet();
+            return SuccessfulConversion.fromSingle(Integer.parseInt(input));
+        }, "any integer");
+        manager.registerConverter(key, converter);
+        CommandArgument arg = CommandParts.arg(TranslatableComponent.of("number"), TextComponent.of("Number"))
+            .ofTypes(ImmutableList.of(key))
+            .build();
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .addPart(arg)
+                .action(params -> arg.value(params).asSingle(key));
+        });
+
+        assertEquals(42, manager.execute(InjectedValueAccess.EMPTY, ImmutableList.of("test", "42")));
+        // the values may be mutable, so they are converted again by default
+        assertEquals(2, conversions.get());
+
+        conversions.set(0);
+        manager.registerConverter(key, new ForwardingArgumentConverter<Integer>(converter) {
+            @Override
+            public boolean canReuseConversions() {
+                return true;
+            }
+        });
+        assertEquals(42, manager.execute(InjectedValueAccess.EMPTY, ImmutableList.of("test", "42")));
+        assertEquals(1, conversions.get());
+    }
+
+    @Test
+    @DisplayName("reports parse events to its tracer")
+    void parseReportsToTracer() {
+        CommandManagerImpl manager = new CommandManagerImpl();
+        RecordingParseTracer tracer = new RecordingParseTracer();
+        manager.setParseTracer(tracer);
+        Key<Integer> key = Key.of(Integer.class);
+        CommandArgument arg = CommandParts.arg(TranslatableComponent.of("number"), TextComponent.of("Number"))
+            .ofTypes(ImmutableList.of(key))
+            .build();
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .addPart(arg);
+        });
+
+        manager.parse(InjectedValueAccess.EMPTY, ImmutableList.of("test", "42"));
+        assertEquals(ImmutableList.of(
+            ParseEvent.Type.PARSE_STARTED,
+            ParseEvent.Type.TOKEN_CONSUMED,
+            ParseEvent.Type.PART_TRIED,
+            ParseEvent.Type.CONVERTER_INVOKED,
+            ParseEvent.Type.PARSE_FINISHED
+        ), tracer.getEvents().stream().map(ParseEvent::getType).collect(ImmutableList.toImmutableList()));
+        assertTrue(tracer.getEvents().get(3).isSuccessful());
+        assertEquals(key, tracer.getEvents().get(3).getKey());
+        assertEquals(1, tracer.getEvents().stream().mapToLong(ParseEvent::getParseId).distinct().count());
+    }
+
+    @Test
+    @DisplayName("keeps the newest parse events within its capacity")
+    void tracerDropsOldestEvents() {
+        CommandManagerImpl manager = new CommandManagerImpl();
+        RecordingParseTracer tracer = new RecordingParseTracer(2);
+        manager.setParseTracer(tracer);
+        manager.register("test", cmd -> cmd.description(TextComponent.of("Test")));
+
+        manager.parse(InjectedValueAccess.EMPTY, ImmutableList.of("test"));
+        manager.parse(InjectedValueAccess.EMPTY, ImmutableList.of("test"));
+        ImmutableList<ParseEvent> events = tracer.getEvents();
+        assertEquals(2, events.size());
+        assertEquals(ParseEvent.Type.PARSE_STARTED, events.get(0).getType());
+        assertEquals(ParseEvent.Type.PARSE_FINISHED, events.get(1).getType());
+        assertEquals(events.get(0).getParseId(), events.get(1).getParseId());
+        assertEquals(2, tracer.getDroppedCount());
+    }
+
+    @Test
+    @DisplayName("reports a missing argument as incomplete without throwing")
+    void tryParseReportsIncomplete() {
+        CommandManager manager = new CommandManagerImpl();
+        CommandArgument arg = CommandParts.arg(TranslatableComponent.of("number"), TextComponent.of("Number"))
+            .ofTypes(ImmutableList.of(Key.of(Integer.class)))
+            .build();
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .addPart(arg);
+        });
+
+        ParseOutcome outcome = manager.tryParse(InjectedValueAccess.EMPTY, ImmutableList.of("test"));
+        assertEquals(ParseOutcome.Status.INCOMPLETE, outcome.getStatus());
+        assertTrue(outcome.getResult().isPresent());
+        assertThrows(UsageException.class, outcome::getResultOrThrow);
+    }
+
+    @Test
+    @DisplayName("can create usage exceptions without stack traces")
+    void stacklessUsageExceptions() {
+        CommandManagerImpl manager = new CommandManagerImpl();
+        manager.setStacklessExceptions(true);
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"));
+        });
+
+        UsageException e = assertThrows(UsageException.class, () ->
+            manager.parse(InjectedValueAccess.EMPTY, ImmutableList.of("test", "extra"))
+        );
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals("Too many arguments.", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("does not convert unchanged arguments again in a suggestion session")
+    void suggestionSessionResumesParsing() {
+        CommandManager manager = new CommandManagerImpl();
+        AtomicInteger conversions = new AtomicInteger();
+        Key<Integer> key = Key.of(Integer.class);
+        manager.registerConverter(key, SimpleArgumentConverter.from((input, context) -> {
+            conversions.incrementAndGet();
+            return SuccessfulConversion.fromSingle(Integer.parseInt(input));
+        }, "any integer"));
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .addPart(CommandParts.arg(TranslatableComponent.of("number"), TextComponent.of("Number"))
+                    .ofTypes(ImmutableList.of(key))
+                    .build())
+                .addPart(CommandParts.arg(TranslatableComponent.of("text"), TextComponent.of("Text"))
+                    .build());
+        });
+
+        SuggestionSession session = manager.newSuggestionSession(InjectedValueAccess.EMPTY);
+        for (String text : ImmutableList.of("", "a", "ab")) {
+            ImmutableList<String> args = ImmutableList.of("test", "1", text);
+            assertEquals(manager.getSuggestions(InjectedValueAccess.EMPTY, args), session.getSuggestions(args));
+        }
+        // once per call to the manager, and once for the whole session
+        assertEquals(4, conversions.get());
+    }
+
+    @Test
+    @DisplayName("registers nothing from a batch with a name collision")
+    void registerAllIsAllOrNothing() {
+        CommandManager manager = new CommandManagerImpl();
+        Command first = manager.newCommand("first")
+            .description(TextComponent.of("First"))
+            .build();
+        Command second = manager.newCommand("second")
+            .aliases(ImmutableList.of("first"))
+            .description(TextComponent.of("Second"))
+            .build();
+
+        assertThrows(IllegalArgumentException.class, () ->
+            manager.registerAll(ImmutableList.of(first, second))
+        );
+        assertEquals(0, manager.getAllCommands().count());
+        manager.registerAll(ImmutableList.of(first));
+        assertTrue(manager.containsCommand("first"));
+    }
+
+    @Test
+    @DisplayName("replaces only the commands in a namespace")
+    void replaceNamespace() {
+        CommandManager manager = new CommandManagerImpl();
+        manager.register("kept", cmd -> cmd.description(TextComponent.of("Kept")));
+        manager.replace("plugin", ImmutableList.of(manager.newCommand("old")
+            .description(TextComponent.of("Old"))
+            .build()));
+        manager.replace("plugin", ImmutableList.of(manager.newCommand("new")
+            .description(TextComponent.of("New"))
+            .build()));
+
+        assertTrue(manager.containsCommand("kept"));
+        assertTrue(manager.containsCommand("new"));
+        assertFalse(manager.containsCommand("old"));
+        assertTrue(manager.unregister(manager.getCommand("kept").orElseThrow(AssertionError::new)));
+        assertFalse(manager.containsCommand("kept"));
+    }
+
+    @Test
+    @DisplayName("computes command information once, at registration")
+    void commandInfoComputedAtRegistration() {
+        CommandManagerImpl manager = new CommandManagerImpl();
+        manager.register("test", cmd -> cmd.description(TextComponent.of("Test")));
+        manager.parse(InjectedValueAccess.EMPTY, ImmutableList.of("test"));
+        manager.parse(InjectedValueAccess.EMPTY, ImmutableList.of("test"));
+
+        assertEquals(0, manager.getCommandInfoStats().missCount());
+        assertEquals(2, manager.getCommandInfoStats().hitCount());
+    }
+
+    @Test
+    @DisplayName("caches command information only while the command is registered")
+    void commandInfoCachedWhileRegistered() {
+        CommandManagerImpl manager = new CommandManagerImpl();
+        manager.register("taken", cmd -> cmd.description(TextComponent.of("Taken")));
+        Command rejected = manager.newCommand("rejected")
+            .aliases(ImmutableList.of("taken"))
+            .description(TextComponent.of("Rejected"))
+            .build();
+        assertThrows(IllegalArgumentException.class, () -> manager.register(rejected));
+        assertEquals(1, manager.cachedCommandInfoCount());
+
+        Command sub = manager.newCommand("sub")
+            .description(TextComponent.of("Sub"))
+            .build();
+        SubCommandPart subPart = SubCommandPart.builder(TranslatableComponent.of("actions"),
+            TextComponent.of("Sub-actions"))
+            .required()
+            .withCommands(ImmutableList.of(sub))
+            .build();
+        Command parent = manager.newCommand("parent")
+            .description(TextComponent.of("Parent"))
+            .addPart(subPart)
+            .build();
+        manager.register("other", cmd -> cmd.description(TextComponent.of("Other")).addPart(subPart));
+        manager.register(parent);
+        assertEquals(4, manager.cachedCommandInfoCount());
+        manager.unregister(parent);
+        // the sub-command is still reachable from "other"
+        assertEquals(3, manager.cachedCommandInfoCount());
+
+        // the batch still parses the removed command, without caching it again
+        manager.register(parent);
+        manager.register("remove", cmd -> cmd.description(TextComponent.of("Remove"))
+            .action(params -> manager.unregister(parent) ? 1 : 0));
+        ImmutableList<ExecutionResult> results = manager.executeBatch(InjectedValueAccess.EMPTY, ImmutableList.of(
+            ImmutableList.of("remove"),
+            ImmutableList.of("parent", "sub")
+        ));
+        assertEquals(1, results.get(0).getCountOrThrow());
+        assertTrue(results.get(1).isSuccessful());
+        assertEquals(4, manager.cachedCommandInfoCount());
+    }
+
+    @Test
+    @DisplayName("finds values for parts across the execution path")
+    void parametersCoverExecutionPath() {
+        CommandManager manager = new CommandManagerImpl();
+        CommandArgument rootArg = CommandParts.arg(TranslatableComponent.of("root"), TextComponent.of("Root"))
+            .build();
+        CommandArgument subArg = CommandParts.arg(TranslatableComponent.of("sub"), TextComponent.of("Sub"))
+            .build();
+        Command sub = manager.newCommand("sub")
+            .description(TextComponent.of("Sub"))
+            .addPart(subArg)
+            .build();
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .addPart(rootArg)
+                .addPart(SubCommandPart.builder(TranslatableComponent.of("actions"), TextComponent.of("Sub-actions"))
+                    .required()
+                    .withCommands(ImmutableList.of(sub))
+                    .build());
+        });
+
+        CommandParameters params = manager.parse(InjectedValueAccess.EMPTY, ImmutableList.of("test", "a", "sub", "b"))
+            .getParameters();
+        assertEquals("a", rootArg.value(params).asSingle(Key.of(String.class)));
+        assertEquals("b", subArg.value(params).asSingle(Key.of(String.class)));
+        // parts are found by identity, not equality
+        CommandArgument subArgCopy = CommandParts.arg(TranslatableComponent.of("sub"), TextComponent.of("Sub"))
+            .build();
+        assertFalse(params.has(subArgCopy));
+    }
+
+    @Test
+    @DisplayName("compares parameters by the commands parsed, even after their information is dropped")
+    void parametersEqualAcrossEviction() {
+        CommandManagerImpl manager = new CommandManagerImpl();
+        NoArgCommandFlag flag = CommandParts.flag('f', TextComponent.of("Flag")).build();
+        Command command = manager.newCommand("test")
+            .description(TextComponent.of("Test"))
+            .addPart(flag)
+            .build();
+        manager.register(command);
+        InjectedValueAccess context = MemoizingValueAccess.wrap(InjectedValueAccess.EMPTY);
+
+        CommandParameters before = manager.parse(context, ImmutableList.of("test", "-f")).getParameters();
+        // unregistering drops the cached information, so the next parse uses new information
+        manager.unregister(command);
+        assertEquals(0, manager.cachedCommandInfoCount());
+        manager.register(command);
+        CommandParameters after = manager.parse(context, ImmutableList.of("test", "-f")).getParameters();
+
+        assertEquals(before, after);
+        assertEquals(before.hashCode(), after.hashCode());
+        assertTrue(after.has(flag));
+    }
+
+    @Test
+    @DisplayName("matches flags in both ASCII words and beyond ASCII")
+    void parseFlagsAcrossTables() {
+        CommandManager manager = new CommandManagerImpl();
+        // '1' is in the low word, 'z' in the high word, and U+00E9 in the extended table
+        NoArgCommandFlag low = CommandParts.flag('1', TextComponent.of("Low")).build();
+        NoArgCommandFlag high = CommandParts.flag('z', TextComponent.of("High")).build();
+        NoArgCommandFlag extended = CommandParts.flag('\u00e9', TextComponent.of("Extended")).build();
+        CommandArgument arg = CommandParts.arg(TranslatableComponent.of("value"), TextComponent.of("Value"))
+            .build();
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .addParts(low, high, extended, arg);
+        });
+
+        CommandParameters params = manager.parse(InjectedValueAccess.EMPTY, ImmutableList.of("test", "-1z\u00e9", "x"))
+            .getParameters();
+        assertTrue(low.in(params));
+        assertTrue(high.in(params));
+        assertTrue(extended.in(params));
+        assertEquals("x", arg.value(params).asSingle(Key.of(String.class)));
+
+        // a token with an unknown character is not a flag group
+        params = manager.parse(InjectedValueAccess.EMPTY, ImmutableList.of("test", "-zy"))
+            .getParameters();
+        assertFalse(low.in(params));
+        assertFalse(high.in(params));
+        assertEquals("-zy", arg.value(params).asSingle(Key.of(String.class)));
+    }
+
+    @Test
+    @DisplayName("binds dash-prefixed arguments after a -- terminator")
+    void parseArgumentsAfterTerminator() {
+        CommandManager manager = new CommandManagerImpl();
+        NoArgCommandFlag flagA = CommandParts.flag('a', TextComponent.of("A")).build();
+        NoArgCommandFlag flagB = CommandParts.flag('b', TextComponent.of("B")).build();
+        CommandArgument first = CommandParts.arg(TranslatableComponent.of("first"), TextComponent.of("First"))
+            .defaultsTo(ImmutableList.of("default"))
+            .build();
+        CommandArgument second = CommandParts.arg(TranslatableComponent.of("second"), TextComponent.of("Second"))
+            .build();
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .addParts(flagA, flagB, first, second);
+        });
+        Key<String> key = Key.of(String.class);
+
+        CommandParameters params = manager.parse(InjectedValueAccess.EMPTY,
+            ImmutableList.of("test", "--", "-a", "-b")).getParameters();
+        assertFalse(flagA.in(params));
+        assertFalse(flagB.in(params));
+        assertEquals("-a", first.value(params).asSingle(key));
+        assertEquals("-b", second.value(params).asSingle(key));
+
+        // only one argument follows the terminator, so the optional keeps its default
+        params = manager.parse(InjectedValueAccess.EMPTY,
+            ImmutableList.of("test", "-a", "--", "-b")).getParameters();
+        assertTrue(flagA.in(params));
+        assertFalse(flagB.in(params));
+        assertEquals("default", first.value(params).asSingle(key));
+        assertEquals("-b", second.value(params).asSingle(key));
+    }
+
+    @Test
+    @DisplayName("runs actions on the given executor")
+    void executeAsyncUsesExecutor() {
+        CommandManager manager = new CommandManagerImpl();
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .action(params -> {
+                    throw new IllegalStateException("failed");
+                });
+        });
+        List<Runnable> submitted = new ArrayList<>();
+
+        CompletableFuture<Integer> future = manager.executeAsync(InjectedValueAccess.EMPTY,
+            ImmutableList.of("test"), submitted::add);
+        assertFalse(future.isDone());
+        // only the action completes the future
+        assertThrows(UnsupportedOperationException.class, () -> future.complete(1));
+        assertThrows(UnsupportedOperationException.class, () -> future.obtrudeValue(1));
+        assertFalse(future.isDone());
+        submitted.forEach(Runnable::run);
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertTrue(e.getCause() instanceof CommandExecutionException);
+    }
+
+    @Test
+    @DisplayName("executes a batch, testing each condition once and continuing past failures")
+    void executeBatchSharesConditions() {
+        CommandManager manager = new CommandManagerImpl();
+        AtomicInteger conditionTests = new AtomicInteger();
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .condition(context -> conditionTests.incrementAndGet() > 0)
+                .action(params -> 1);
+        });
+
+        ImmutableList<ExecutionResult> results = manager.executeBatch(InjectedValueAccess.EMPTY, ImmutableList.of(
+            ImmutableList.of("test"),
+            ImmutableList.of("missing"),
+            ImmutableList.of("test")
+        ));
+        assertEquals(1, results.get(0).getCount());
+        assertFalse(results.get(1).isSuccessful());
+        assertEquals(1, results.get(2).getCount());
+        assertEquals(1, conditionTests.get());
+    }
+
+    @Test
+    @DisplayName("continues a batch past converters and actions that throw unexpected exceptions")
+    void executeBatchContainsUnexpectedExceptions() {
+        CommandManager manager = new CommandManagerImpl();
+        Key<Integer> key = Key.of(Integer.class);
+        IllegalStateException converterFailure = new IllegalStateException("broken converter");
+        manager.registerConverter(key, SimpleArgumentConverter.from((input, context) -> {
+            if (input.equals("broken")) {
+                throw converterFailure;
+            }
+            return SuccessfulConversion.fromSingle(Integer.parseInt(input));
+        }, "any integer"));
+        CommandArgument arg = CommandParts.arg(TranslatableComponent.of("number"), TextComponent.of("Number"))
+            .ofTypes(ImmutableList.of(key))
+            .build();
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .addPart(arg)
+                .action(params -> {
+                    int number = arg.value(params).asSingle(key);
+                    if (number < 0) {
+                        throw new IllegalArgumentException("negative");
+                    }
+                    return number;
+                });
+        });
+
+        ImmutableList<ExecutionResult> results = manager.executeBatch(InjectedValueAccess.EMPTY, ImmutableList.of(
+            ImmutableList.of("test", "1"),
+            ImmutableList.of("test", "broken"),
+            ImmutableList.of("test", "-1"),
+            ImmutableList.of("test", "2")
+        ));
+        assertEquals(1, results.get(0).getCount());
+        assertEquals(converterFailure, results.get(1).getFailure().getCause());
+        assertTrue(results.get(2).getFailure() instanceof CommandExecutionException);
+        assertEquals(2, results.get(3).getCount());
+
+        ImmutableList<ParseOutcome> outcomes = manager.parseBatch(InjectedValueAccess.EMPTY, ImmutableList.of(
+            ImmutableList.of("test", "broken"),
+            ImmutableList.of("test", "3")
+        ));
+        assertEquals(ParseOutcome.Status.FAILED, outcomes.get(0).getStatus());
+        assertEquals(converterFailure, outcomes.get(0).getFailure().getCause());
+        assertTrue(outcomes.get(1).isComplete());
+    }
+
+    @Test
+    @DisplayName("limits and ranks suggestions")
+    void limitedSuggestions() {
+        CommandManager manager = new CommandManagerImpl();
+        // replaces the default string converter
+        Key<String> key = Key.of(String.class);
+        manager.registerConverter(key, new StringSuggester(() -> ImmutableList.of("c", "a", "d", "b")));
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .addPart(CommandParts.arg(TranslatableComponent.of("text"), TextComponent.of("Text"))
+                    .ofTypes(ImmutableList.of(key))
+                    .build());
+        });
+
+        ImmutableList<String> args = ImmutableList.of("test");
+        assertEquals(ImmutableList.of("c", "a"), manager.getSuggestions(InjectedValueAccess.EMPTY, args, 2)
+            .stream().map(Suggestion::getSuggestion).collect(ImmutableList.toImmutableList()));
+        assertEquals(ImmutableList.of("a", "b"), manager.getSuggestions(InjectedValueAccess.EMPTY, args, 2,
+                Comparator.comparing(Suggestion::getSuggestion))
+            .stream().map(Suggestion::getSuggestion).collect(ImmutableList.toImmutableList()));
+    }
+
+    @Test
+    @DisplayName("caches suggestions, except from volatile converters")
+    void suggestionCacheSkipsVolatileConverters() {
+        CommandManagerImpl manager = new CommandManagerImpl();
+        manager.setSuggestionCachePolicy(SuggestionCachePolicy.builder()
+            .fingerprint(context -> "everyone")
+            .build());
+        Key<String> key = Key.of(String.class);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<List<String>> countingSuggestions = () -> {
+            calls.incrementAndGet();
+            return ImmutableList.of("a");
+        };
+        manager.registerConverter(key, new StringSuggester(countingSuggestions));
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .addPart(CommandParts.arg(TranslatableComponent.of("text"), TextComponent.of("Text"))
+                    .ofTypes(ImmutableList.of(key))
+                    .build());
+        });
+
+        ImmutableList<String> args = ImmutableList.of("test", "");
+        manager.getSuggestions(InjectedValueAccess.EMPTY, args);
+        manager.getSuggestions(InjectedValueAccess.EMPTY, args);
+        assertEquals(1, calls.get());
+        assertEquals(1, manager.getSuggestionCacheStats().hitCount());
+
+        // registering a converter drops the cached suggestions
+        manager.registerConverter(key, new StringSuggester(countingSuggestions) {
+            @Override
+            public boolean canCacheSuggestions() {
+                return false;
+            }
+        });
+        manager.getSuggestions(InjectedValueAccess.EMPTY, args);
+        manager.getSuggestions(InjectedValueAccess.EMPTY, args);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    @DisplayName("gives async suggestions without converters that miss the timeout")
+    void asyncSuggestionsSkipLateConverters() throws Exception {
+        CommandManager manager = new CommandManagerImpl();
+        Key<String> fast = Key.of(String.class);
+        Key<String> slow = Key.of(String.class, Slow.class);
+        manager.registerConverter(fast, new StringSuggester(() -> ImmutableList.of("a")));
+        // never completed, so only the timeout can end the wait
+        CompletableFuture<List<String>> never = new CompletableFuture<>();
+        manager.registerConverter(slow, new StringSuggester(() -> ImmutableList.of("b")) {
+            @Override
+            public CompletableFuture<List<String>> getSuggestionsAsync(String input, InjectedValueAccess context,
+                                                                       int limit) {
+                return never;
+            }
+        });
+        manager.register("test", cmd -> {
+            cmd.description(TextComponent.of("Test"))
+                .addPart(CommandParts.arg(TranslatableComponent.of("text"), TextComponent.of("Text"))
+                    .ofTypes(ImmutableList.of(slow, fast))
+                    .build());
+        });
+
+        ImmutableSet<Suggestion> suggestions = manager.getSuggestionsAsync(InjectedValueAccess.EMPTY,
+            ImmutableList.of("test", ""), 10, Duration.ofMillis(10), Runnable::run).get();
+        assertEquals(ImmutableList.of("a"), suggestions.stream()
+            .map(Suggestion::getSuggestion).collect(ImmutableList.toImmutableList()));
+        assertTrue(never.isCancelled());
+    }
+
+    @InjectAnnotation
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Slow {
+    }
+
+    /**
+     * Accepts any string, and suggests whatever {@code suggestions} gives.
+     */
+    private static class StringSuggester implements ArgumentConverter<String> {
+
+        private final Supplier<List<String>> suggestions;
+
+        StringSuggester(Supplier<List<String>> suggestions) {
+            this.suggestions = suggestions;
+        }
+
+        @Override
+        public Component describeAcceptableArguments() {
+            return TextComponent.of("any");
+        }
+
+        @Override
+        public ConversionResult<String> convert(String argument, InjectedValueAccess context) {
+            return SuccessfulConversion.fromSingle(argument);
+        }
+
+        @Override
+        public List<String> getSuggestions(String input, InjectedValueAccess context) {
+            return suggestions.get();
+        }
+    }
 }